@@ -0,0 +1,81 @@
+package com.aconcepcion.geofencemarkerbuilder.benchmark;
+
+import com.aconcepcion.geofencemarkerbuilder.GeoDistance;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distance kernels over drag sized offsets (up to ~2km) around random centers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DistanceBenchmark {
+
+    private static final int POINTS = 1024;
+
+    private final double[] centerLatitudes = new double[POINTS];
+    private final double[] centerLongitudes = new double[POINTS];
+    private final double[] latitudes = new double[POINTS];
+    private final double[] longitudes = new double[POINTS];
+    private final GeoDistance.Origin origin = new GeoDistance.Origin();
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < POINTS; i++) {
+            centerLatitudes[i] = random.nextDouble() * 140 - 70;
+            centerLongitudes[i] = random.nextDouble() * 360 - 180;
+            latitudes[i] = centerLatitudes[i] + random.nextDouble() * 0.02 - 0.01;
+            longitudes[i] = centerLongitudes[i] + random.nextDouble() * 0.02 - 0.01;
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (POINTS - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public double ellipsoidal() {
+        int i = next();
+        return GeoDistance.ellipsoidal(centerLatitudes[i], centerLongitudes[i], latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public double haversine() {
+        int i = next();
+        return GeoDistance.haversine(centerLatitudes[i], centerLongitudes[i], latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public double equirectangular() {
+        int i = next();
+        return GeoDistance.equirectangular(centerLatitudes[i], centerLongitudes[i], latitudes[i], longitudes[i]);
+    }
+
+    /**
+     * Drag path: the origin stays on the same center while the resizer moves
+     */
+    @Benchmark
+    public double equirectangularCachedOrigin() {
+        int i = next();
+        return origin.set(centerLatitudes[0], centerLongitudes[0]).distanceTo(latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public double radiusLongitude() {
+        int i = next();
+        return GeoDistance.radiusLongitude(centerLatitudes[i], centerLongitudes[i], 500);
+    }
+}
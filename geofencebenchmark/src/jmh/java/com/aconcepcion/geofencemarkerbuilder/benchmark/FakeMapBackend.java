@@ -0,0 +1,78 @@
+package com.aconcepcion.geofencemarkerbuilder.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stand-in for the map objects of the Android library, which cannot be created on a plain JVM
+ *
+ * Markers only carry the string id the Maps API hands out ("m0", "m1", ...) and circles own a
+ * center and a resizer marker, which is all the marker routing code looks at.
+ */
+final class FakeMapBackend {
+
+    static final class FakeMarker {
+        final String id;
+
+        FakeMarker(String id) {
+            this.id = id;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof FakeMarker && ((FakeMarker) other).id.equals(id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+
+    static final class FakeCircle {
+        final FakeMarker centerMarker;
+        final FakeMarker resizerMarker;
+        final double latitude;
+        final double longitude;
+        final double radius;
+
+        FakeCircle(FakeMarker centerMarker, FakeMarker resizerMarker, double latitude, double longitude, double radius) {
+            this.centerMarker = centerMarker;
+            this.resizerMarker = resizerMarker;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radius = radius;
+        }
+
+        /**
+         * Same check GeofenceCircle.onMarkerMoved did before circles were indexed by marker id
+         */
+        boolean owns(FakeMarker marker) {
+            return marker.equals(centerMarker) || marker.equals(resizerMarker);
+        }
+    }
+
+    private int nextMarkerId;
+
+    FakeMarker addMarker() {
+        return new FakeMarker("m" + nextMarkerId++);
+    }
+
+    /**
+     * @return circles spread over a ~200km square, radii between 50m and 2km
+     */
+    List<FakeCircle> addCircles(int count, long seed) {
+        Random random = new Random(seed);
+        List<FakeCircle> circles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            circles.add(new FakeCircle(addMarker(), addMarker(),
+                    14.5 + random.nextDouble() * 2, 120.5 + random.nextDouble() * 2, 50 + random.nextDouble() * 1950));
+        }
+        return circles;
+    }
+}
@@ -0,0 +1,104 @@
+package com.aconcepcion.geofencemarkerbuilder.benchmark;
+
+import com.aconcepcion.geofencemarkerbuilder.MarkerRouter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the circle owning a dragged marker and handing it the event, as done on every drag event
+ *
+ * linearScan mirrors the original MarkerBuilderManagerV2.onMarkerMoved (copy every circle list,
+ * then scan with Marker.equals), routerLookup and routerDispatch the {@link MarkerRouter} the
+ * manager routes marker events through now.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MarkerLookupBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    private static final int ROLE_CENTER = 0;
+    private static final int ROLE_RESIZER = 1;
+
+    @Param({"10", "1000", "100000"})
+    public int circleCount;
+
+    private List<FakeMapBackend.FakeCircle> savedPoints;
+    private final List<FakeMapBackend.FakeCircle> areas = new ArrayList<>();
+    private final MarkerRouter<FakeMapBackend.FakeMarker> router = new MarkerRouter<>();
+    private final FakeMapBackend.FakeMarker[] draggedMarkers = new FakeMapBackend.FakeMarker[QUERIES];
+    private int cursor;
+
+    private FakeMapBackend.FakeCircle draggedCircle;
+    private int draggedRole;
+
+    private final MarkerRouter.Handler<FakeMapBackend.FakeCircle, FakeMapBackend.FakeMarker> circleHandler =
+            new MarkerRouter.Handler<FakeMapBackend.FakeCircle, FakeMapBackend.FakeMarker>() {
+                @Override
+                public void onMarkerEvent(FakeMapBackend.FakeCircle circle, int role, MarkerRouter.Event event,
+                                          FakeMapBackend.FakeMarker marker) {
+                    draggedCircle = circle;
+                    draggedRole = role;
+                }
+            };
+
+    @Setup
+    public void setUp() {
+        savedPoints = new FakeMapBackend().addCircles(circleCount, 7);
+        for (FakeMapBackend.FakeCircle circle : savedPoints) {
+            router.put(circle.centerMarker.getId(), circle, ROLE_CENTER, circleHandler);
+            router.put(circle.resizerMarker.getId(), circle, ROLE_RESIZER, circleHandler);
+        }
+
+        Random random = new Random(11);
+        for (int i = 0; i < QUERIES; i++) {
+            FakeMapBackend.FakeCircle circle = savedPoints.get(random.nextInt(circleCount));
+            FakeMapBackend.FakeMarker marker = random.nextBoolean() ? circle.centerMarker : circle.resizerMarker;
+            // callbacks hand out new Marker wrappers, never the instance returned by addMarker
+            draggedMarkers[i] = new FakeMapBackend.FakeMarker(marker.getId());
+        }
+    }
+
+    private FakeMapBackend.FakeMarker next() {
+        cursor = (cursor + 1) & (QUERIES - 1);
+        return draggedMarkers[cursor];
+    }
+
+    @Benchmark
+    public FakeMapBackend.FakeCircle linearScan() {
+        FakeMapBackend.FakeMarker marker = next();
+        ArrayList<FakeMapBackend.FakeCircle> allMarkers = new ArrayList<>();
+        allMarkers.addAll(areas);
+        allMarkers.addAll(savedPoints);
+        for (int i = 0; i < allMarkers.size(); i++) {
+            FakeMapBackend.FakeCircle circle = allMarkers.get(i);
+            if (circle.owns(marker)) return circle;
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object routerLookup() {
+        return router.getOwner(next().getId());
+    }
+
+    @Benchmark
+    public int routerDispatch() {
+        FakeMapBackend.FakeMarker marker = next();
+        router.dispatch(marker.getId(), MarkerRouter.Event.drag, marker);
+        return draggedRole + (draggedCircle != null ? 1 : 0);
+    }
+}
@@ -0,0 +1,108 @@
+package com.aconcepcion.geofencemarkerbuilder.benchmark;
+
+import com.aconcepcion.geofencemarkerbuilder.GeofenceGridIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk insert/remove and queries on the spatial index backing the manager's containment queries
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpatialIndexBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"10", "1000", "100000"})
+    public int circleCount;
+
+    private List<FakeMapBackend.FakeCircle> circles;
+    private GeofenceGridIndex<FakeMapBackend.FakeCircle> index;
+    private final double[] queryLatitudes = new double[QUERIES];
+    private final double[] queryLongitudes = new double[QUERIES];
+    private final List<FakeMapBackend.FakeCircle> out = new ArrayList<>();
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        circles = new FakeMapBackend().addCircles(circleCount, 3);
+        index = new GeofenceGridIndex<>();
+        for (FakeMapBackend.FakeCircle circle : circles) {
+            index.put(circle, circle.latitude, circle.longitude, circle.radius);
+        }
+
+        Random random = new Random(5);
+        for (int i = 0; i < QUERIES; i++) {
+            queryLatitudes[i] = 14.5 + random.nextDouble() * 2;
+            queryLongitudes[i] = 120.5 + random.nextDouble() * 2;
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (QUERIES - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public GeofenceGridIndex<FakeMapBackend.FakeCircle> bulkInsert() {
+        GeofenceGridIndex<FakeMapBackend.FakeCircle> bulk = new GeofenceGridIndex<>();
+        for (int i = 0; i < circles.size(); i++) {
+            FakeMapBackend.FakeCircle circle = circles.get(i);
+            bulk.put(circle, circle.latitude, circle.longitude, circle.radius);
+        }
+        return bulk;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public GeofenceGridIndex<FakeMapBackend.FakeCircle> bulkInsertRemove() {
+        GeofenceGridIndex<FakeMapBackend.FakeCircle> bulk = bulkInsert();
+        for (int i = 0; i < circles.size(); i++) {
+            bulk.remove(circles.get(i));
+        }
+        return bulk;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public int containing() {
+        int i = next();
+        out.clear();
+        index.containing(queryLatitudes[i], queryLongitudes[i], out);
+        return out.size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public int nearest() {
+        int i = next();
+        out.clear();
+        index.nearest(queryLatitudes[i], queryLongitudes[i], 5, out);
+        return out.size();
+    }
+
+    /**
+     * Drag tick: moving a circle a few meters, usually within the same grid cells
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void dragUpdate() {
+        int i = next();
+        FakeMapBackend.FakeCircle circle = circles.get(i % circles.size());
+        index.put(circle, circle.latitude + (i & 7) * 1e-5, circle.longitude, circle.radius);
+    }
+}
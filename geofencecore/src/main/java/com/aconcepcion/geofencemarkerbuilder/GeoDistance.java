@@ -0,0 +1,141 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+/**
+ * Distance kernels on primitive doubles, all distances in meters and coordinates in degrees
+ *
+ * Three precision tiers are available:
+ * <ul>
+ *     <li>{@link Precision#ELLIPSOIDAL} - Vincenty's inverse formula on the WGS84 ellipsoid, same result
+ *     as android.location.Location.distanceBetween. Iterative, the slowest tier. Does not converge for nearly
+ *     antipodal points, where the haversine distance is returned instead.</li>
+ *     <li>{@link Precision#HAVERSINE} - great-circle distance on a sphere of radius
+ *     {@link MarkerAreasConstants#RADIUS_OF_EARTH_METERS}, the model map circles are drawn with.
+ *     Differs from the ellipsoid by up to ~0.6%.</li>
+ *     <li>{@link Precision#EQUIRECTANGULAR} - flat approximation of the sphere around the first point,
+ *     accurate for the distances of a drag gesture. See {@link Origin} to reuse cos(latitude).</li>
+ * </ul>
+ */
+public class GeoDistance {
+
+    public static enum Precision {ELLIPSOIDAL, HAVERSINE, EQUIRECTANGULAR}
+
+    private static final double WGS84_A = 6378137.0;
+    private static final double WGS84_B = 6356752.3142;
+    private static final double WGS84_F = (WGS84_A - WGS84_B) / WGS84_A;
+    private static final int MAX_ITERATIONS = 20;
+    private static final double CONVERGENCE = 1.0e-12;
+
+    public static double distance(Precision precision, double latitude1, double longitude1, double latitude2, double longitude2) {
+        switch (precision) {
+            case ELLIPSOIDAL: return ellipsoidal(latitude1, longitude1, latitude2, longitude2);
+            case HAVERSINE: return haversine(latitude1, longitude1, latitude2, longitude2);
+            default: return equirectangular(latitude1, longitude1, latitude2, longitude2);
+        }
+    }
+
+    public static double ellipsoidal(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double l = Math.toRadians(longitude2 - longitude1);
+        double u1 = Math.atan((1.0 - WGS84_F) * Math.tan(Math.toRadians(latitude1)));
+        double u2 = Math.atan((1.0 - WGS84_F) * Math.tan(Math.toRadians(latitude2)));
+
+        double sinU1 = Math.sin(u1);
+        double cosU1 = Math.cos(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU2 = Math.cos(u2);
+
+        double lambda = l;
+        double sinSigma = 0;
+        double cosSigma = 0;
+        double sigma = 0;
+        double cosSqAlpha = 0;
+        double cos2SigmaM = 0;
+        boolean isConverged = false;
+
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double sinLambda = Math.sin(lambda);
+            double cosLambda = Math.cos(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(t1 * t1 + t2 * t2);
+            if (sinSigma == 0) return 0;
+
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+            // equatorial line: cosSqAlpha = 0
+            cos2SigmaM = cosSqAlpha == 0 ? 0 : cosSigma - 2.0 * sinU1 * sinU2 / cosSqAlpha;
+
+            double c = WGS84_F / 16.0 * cosSqAlpha * (4.0 + WGS84_F * (4.0 - 3.0 * cosSqAlpha));
+            double lambdaPrevious = lambda;
+            lambda = l + (1.0 - c) * WGS84_F * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1.0 + 2.0 * cos2SigmaM * cos2SigmaM)));
+            if (Math.abs(lambda - lambdaPrevious) < CONVERGENCE) {
+                isConverged = true;
+                break;
+            }
+        }
+        // nearly antipodal, lambda oscillates and the last iterate can be off by a few tenths of a percent
+        if (!isConverged) return haversine(latitude1, longitude1, latitude2, longitude2);
+
+        double uSquared = cosSqAlpha * (WGS84_A * WGS84_A - WGS84_B * WGS84_B) / (WGS84_B * WGS84_B);
+        double a = 1 + uSquared / 16384.0 * (4096.0 + uSquared * (-768 + uSquared * (320.0 - 175.0 * uSquared)));
+        double b = uSquared / 1024.0 * (256.0 + uSquared * (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
+        double deltaSigma = b * sinSigma * (cos2SigmaM + b / 4.0 * (cosSigma * (-1.0 + 2.0 * cos2SigmaM * cos2SigmaM)
+                - b / 6.0 * cos2SigmaM * (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SigmaM * cos2SigmaM)));
+
+        return WGS84_B * a * (sigma - deltaSigma);
+    }
+
+    public static double haversine(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double sinLat = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        double sinLng = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinLng * sinLng;
+        return 2 * MarkerAreasConstants.RADIUS_OF_EARTH_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public static double equirectangular(double latitude1, double longitude1, double latitude2, double longitude2) {
+        return equirectangular(Math.cos(Math.toRadians(latitude1)), latitude1, longitude1, latitude2, longitude2);
+    }
+
+    static double equirectangular(double cosLatitude1, double latitude1, double longitude1, double latitude2, double longitude2) {
+        double x = Math.toRadians(wrapLongitudeDelta(longitude2 - longitude1)) * cosLatitude1;
+        double y = Math.toRadians(latitude2 - latitude1);
+        return Math.sqrt(x * x + y * y) * MarkerAreasConstants.RADIUS_OF_EARTH_METERS;
+    }
+
+    /**
+     * @return longitude of the point lying east of the center at the given radius, on the center's latitude
+     */
+    public static double radiusLongitude(double centerLatitude, double centerLongitude, double radius) {
+        double radiusAngle = Math.toDegrees(radius / MarkerAreasConstants.RADIUS_OF_EARTH_METERS) / Math.cos(Math.toRadians(centerLatitude));
+        return centerLongitude + radiusAngle;
+    }
+
+    private static double wrapLongitudeDelta(double delta) {
+        if (delta > 180) return delta - 360;
+        if (delta < -180) return delta + 360;
+        return delta;
+    }
+
+    /**
+     * Equirectangular distances from a fixed origin, cos(latitude) of the origin is computed once
+     * per {@link #set(double, double)} instead of once per distance
+     */
+    public static class Origin {
+        private double latitude;
+        private double longitude;
+        private double cosLatitude = 1;
+
+        public Origin set(double latitude, double longitude) {
+            if (latitude != this.latitude) cosLatitude = Math.cos(Math.toRadians(latitude));
+            this.latitude = latitude;
+            this.longitude = longitude;
+            return this;
+        }
+
+        public double distanceTo(double latitude, double longitude) {
+            return equirectangular(cosLatitude, this.latitude, this.longitude, latitude, longitude);
+        }
+    }
+}
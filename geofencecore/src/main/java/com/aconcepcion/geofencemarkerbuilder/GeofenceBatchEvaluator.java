@@ -0,0 +1,378 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Replays recorded fixes of many devices against a {@link GeofenceSet} on all cores
+ *
+ * Fixes are read in chunks of bounded size, so inputs of any length are evaluated in constant memory.
+ * Each chunk is grouped into partitions by device and the partitions are evaluated in parallel with
+ * fork-join; every device always falls in the same partition, so its {@link GeofenceTransitionEngine}
+ * is only ever used by one task at a time and sees its fixes in input order. The next chunk is read
+ * while the current one is evaluated. The geofence set, and its spatial index, is shared read-only by
+ * all tasks.
+ *
+ * Transitions are streamed to the listener as they are found, from the worker threads.
+ *
+ * Runs on a plain JVM.
+ */
+public class GeofenceBatchEvaluator {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Sequential input of fixes, fixes of a device are expected in time order
+     */
+    public interface FixSource {
+
+        /**
+         * @param fix holder to fill with the next fix
+         * @return false at the end of the input
+         */
+        boolean next(Fix fix) throws IOException;
+    }
+
+    /**
+     * Receives the transitions found by {@link #evaluate(FixSource)}
+     *
+     * Called concurrently from the worker threads, transitions of one device are delivered in order
+     * from one thread at a time.
+     */
+    public interface DeviceTransitionListener {
+
+        /**
+         * @param deviceId device whose fix caused the transition
+         * @see TransitionListener#onTransition(long, GeofenceTransitionEngine.Transition, long, double, double)
+         */
+        void onTransition(long deviceId, long geofenceId, GeofenceTransitionEngine.Transition transition,
+                          long timeMillis, double latitude, double longitude);
+    }
+
+    /**
+     * Reusable holder of a single fix
+     */
+    public static final class Fix {
+        private long deviceId;
+        private long timeMillis;
+        private double latitude;
+        private double longitude;
+        private float accuracyMeters;
+
+        public Fix set(long deviceId, long timeMillis, double latitude, double longitude, float accuracyMeters) {
+            this.deviceId = deviceId;
+            this.timeMillis = timeMillis;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracyMeters = accuracyMeters;
+            return this;
+        }
+
+        public long getDeviceId() {
+            return deviceId;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public float getAccuracyMeters() {
+            return accuracyMeters;
+        }
+    }
+
+    private final GeofenceSet geofenceSet;
+    private final DeviceTransitionListener transitionListener;
+    private final double minHysteresisMeters;
+    private final double accuracyFactor;
+    private final long dwellMillis;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    public static class Builder {
+        private final GeofenceSet geofenceSet;
+        private DeviceTransitionListener transitionListener;
+        private double minHysteresisMeters = 5;
+        private double accuracyFactor = 1;
+        private long dwellMillis = -1;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private ForkJoinPool pool;
+
+        public Builder(GeofenceSet geofenceSet) {
+            this.geofenceSet = geofenceSet;
+        }
+
+        public Builder listener(DeviceTransitionListener transitionListener) {
+            this.transitionListener = transitionListener;
+            return this;
+        }
+
+        /**
+         * @see GeofenceTransitionEngine.Builder#minHysteresisMeters(double)
+         */
+        public Builder minHysteresisMeters(double minHysteresisMeters) {
+            this.minHysteresisMeters = minHysteresisMeters;
+            return this;
+        }
+
+        /**
+         * @see GeofenceTransitionEngine.Builder#accuracyFactor(double)
+         */
+        public Builder accuracyFactor(double accuracyFactor) {
+            this.accuracyFactor = accuracyFactor;
+            return this;
+        }
+
+        /**
+         * @see GeofenceTransitionEngine.Builder#dwellMillis(long)
+         */
+        public Builder dwellMillis(long dwellMillis) {
+            this.dwellMillis = dwellMillis;
+            return this;
+        }
+
+        /**
+         * Number of fixes read per chunk, two chunks are held in memory at a time
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Number of worker threads of the pool created for each evaluation, ignored when a pool is given
+         */
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Pool running the evaluation, a pool is created and shut down for each evaluation when not set
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public GeofenceBatchEvaluator build() {
+            if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+            return new GeofenceBatchEvaluator(this);
+        }
+    }
+
+    private GeofenceBatchEvaluator(Builder b) {
+        this.geofenceSet            =   b.geofenceSet;
+        this.transitionListener     =   b.transitionListener;
+        this.minHysteresisMeters    =   b.minHysteresisMeters;
+        this.accuracyFactor         =   b.accuracyFactor;
+        this.dwellMillis            =   b.dwellMillis;
+        this.chunkSize              =   b.chunkSize;
+        this.parallelism            =   Math.max(1, b.pool != null ? b.pool.getParallelism() : b.parallelism);
+        this.pool                   =   b.pool;
+    }
+
+    /**
+     * Evaluates every fix of the source, each call starts with all devices outside every geofence
+     *
+     * @return number of fixes evaluated
+     * @throws IOException when the source fails, once every fix read before the failure was evaluated
+     */
+    public long evaluate(FixSource source) throws IOException {
+        // a few partitions per worker keeps the workers busy when devices are unevenly active
+        Partition[] partitions = new Partition[parallelism * 4];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition();
+        }
+
+        ForkJoinPool evaluationPool = pool != null ? pool : new ForkJoinPool(parallelism);
+        try {
+            Chunk current = new Chunk(chunkSize, partitions.length);
+            Chunk next = new Chunk(chunkSize, partitions.length);
+            Fix fix = new Fix();
+            IOException failure = null;
+            try {
+                current.read(source, fix);
+            } catch (IOException e) {
+                failure = e;
+            }
+            long count = current.size;
+            while (current.size > 0) {
+                ForkJoinTask<Void> task = evaluationPool.submit(new ChunkTask(current, partitions, 0, partitions.length));
+                next.size = 0;
+                try {
+                    if (failure == null) next.read(source, fix);
+                } catch (IOException e) {
+                    failure = e;
+                } finally {
+                    task.join();
+                }
+                count += next.size;
+                Chunk evaluated = current;
+                current = next;
+                next = evaluated;
+            }
+            if (failure != null) throw failure;
+            return count;
+        } finally {
+            if (evaluationPool != pool) evaluationPool.shutdown();
+        }
+    }
+
+    /**
+     * Columns of a chunk of fixes, with the fixes of every partition listed in input order
+     */
+    private static final class Chunk {
+        final long[] deviceIds;
+        final long[] times;
+        final double[] latitudes;
+        final double[] longitudes;
+        final float[] accuracies;
+        final int[] order;
+        final int[] partitionStarts;
+        int size;
+
+        Chunk(int capacity, int partitionCount) {
+            deviceIds = new long[capacity];
+            times = new long[capacity];
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+            accuracies = new float[capacity];
+            order = new int[capacity];
+            partitionStarts = new int[partitionCount + 1];
+        }
+
+        /**
+         * Fills the chunk from the source and groups it by partition, when the source fails the fixes
+         * read before are grouped and kept
+         *
+         * @return number of fixes read
+         */
+        int read(FixSource source, Fix fix) throws IOException {
+            size = 0;
+            try {
+                while (size < deviceIds.length && source.next(fix)) {
+                    deviceIds[size] = fix.deviceId;
+                    times[size] = fix.timeMillis;
+                    latitudes[size] = fix.latitude;
+                    longitudes[size] = fix.longitude;
+                    accuracies[size] = fix.accuracyMeters;
+                    size++;
+                }
+            } finally {
+                group();
+            }
+            return size;
+        }
+
+        private void group() {
+            // stable counting sort by partition
+            int partitionCount = partitionStarts.length - 1;
+            Arrays.fill(partitionStarts, 0);
+            for (int i = 0; i < size; i++) {
+                partitionStarts[partitionOf(deviceIds[i], partitionCount) + 1]++;
+            }
+            for (int p = 0; p < partitionCount; p++) {
+                partitionStarts[p + 1] += partitionStarts[p];
+            }
+            int[] fill = Arrays.copyOf(partitionStarts, partitionCount);
+            for (int i = 0; i < size; i++) {
+                order[fill[partitionOf(deviceIds[i], partitionCount)]++] = i;
+            }
+        }
+    }
+
+    private static int partitionOf(long deviceId, int partitionCount) {
+        long hash = deviceId * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 33) % partitionCount);
+    }
+
+    /**
+     * Engines of the devices of one partition, only used by one task at a time
+     */
+    private static final class Partition {
+        final HashMap<Long, GeofenceTransitionEngine> engines = new HashMap<>();
+    }
+
+    /**
+     * Forwards the transitions of one device's engine with the device id
+     */
+    private static final class DeviceListener implements TransitionListener {
+        private final long deviceId;
+        private final DeviceTransitionListener transitionListener;
+
+        DeviceListener(long deviceId, DeviceTransitionListener transitionListener) {
+            this.deviceId = deviceId;
+            this.transitionListener = transitionListener;
+        }
+
+        @Override
+        public void onTransition(long geofenceId, GeofenceTransitionEngine.Transition transition, long timeMillis,
+                                 double latitude, double longitude) {
+            transitionListener.onTransition(deviceId, geofenceId, transition, timeMillis, latitude, longitude);
+        }
+    }
+
+    /**
+     * Evaluates the partitions from to to (exclusive) of a chunk, splitting the range in halves
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk chunk;
+        private final Partition[] partitions;
+        private final int from;
+        private final int to;
+
+        ChunkTask(Chunk chunk, Partition[] partitions, int from, int to) {
+            this.chunk = chunk;
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(chunk, partitions, from, middle), new ChunkTask(chunk, partitions, middle, to));
+                return;
+            }
+
+            Partition partition = partitions[from];
+            for (int k = chunk.partitionStarts[from]; k < chunk.partitionStarts[from + 1]; k++) {
+                int i = chunk.order[k];
+                engineFor(partition, chunk.deviceIds[i])
+                        .onLocation(chunk.times[i], chunk.latitudes[i], chunk.longitudes[i], chunk.accuracies[i]);
+            }
+        }
+    }
+
+    private GeofenceTransitionEngine engineFor(Partition partition, long deviceId) {
+        GeofenceTransitionEngine engine = partition.engines.get(deviceId);
+        if (engine == null) {
+            engine = new GeofenceTransitionEngine.Builder(geofenceSet)
+                    .listener(transitionListener != null ? new DeviceListener(deviceId, transitionListener) : null)
+                    .minHysteresisMeters(minHysteresisMeters)
+                    .accuracyFactor(accuracyFactor)
+                    .dwellMillis(dwellMillis)
+                    .build();
+            partition.engines.put(deviceId, engine);
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,453 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Uniform lat/lng grid over circle bounding boxes
+ *
+ * Every circle is registered in each grid cell its bounding box touches, so point queries only
+ * look at a single cell. Circles spanning more than {@link #MAX_CELLS_PER_ENTRY} cells are kept
+ * in a separate list that every query scans, which keeps continent sized circles from flooding
+ * the grid. Distances are great-circle (haversine) distances in meters.
+ *
+ * Cells are looked up by a primitive key and emptied cell lists are recycled, so moving an indexed
+ * circle across cells does not allocate once the grid has warmed up.
+ *
+ * Bounding boxes are clamped to [-180, 180] longitude, circles crossing the antimeridian are only
+ * found on the side of their center.
+ *
+ * Not thread safe.
+ *
+ * @param <T> indexed value, compared by identity
+ */
+public class GeofenceGridIndex<T> {
+
+    public static final double DEFAULT_CELL_SIZE_DEGREES = 0.05;
+
+    private static final int MAX_CELLS_PER_ENTRY = 64;
+
+    private static final class Entry<T> {
+        final T value;
+        double latitude;
+        double longitude;
+        double radius;
+        int minLatCell;
+        int maxLatCell;
+        int minLngCell;
+        int maxLngCell;
+        boolean isOversized;
+        int queryStamp;
+
+        Entry(T value) {
+            this.value = value;
+        }
+    }
+
+    private final double cellSizeDegrees;
+    private static final int NO_CELL = -1;
+
+    private final LongIntHashMap cellIndexes = new LongIntHashMap();
+    private final ArrayList<ArrayList<Entry<T>>> cells = new ArrayList<>();
+    private int[] freeCells = new int[16];
+    private int freeCellCount;
+    private final ArrayList<Entry<T>> oversized = new ArrayList<>();
+    private final IdentityHashMap<T, Entry<T>> entries = new IdentityHashMap<>();
+
+    private int queryStamp;
+    private int minOccupiedLatCell = Integer.MAX_VALUE;
+    private int maxOccupiedLatCell = Integer.MIN_VALUE;
+    private int minOccupiedLngCell = Integer.MAX_VALUE;
+    private int maxOccupiedLngCell = Integer.MIN_VALUE;
+
+    public GeofenceGridIndex() {
+        this(DEFAULT_CELL_SIZE_DEGREES);
+    }
+
+    /**
+     * @param cellSizeDegrees edge of a grid cell, ideally close to the typical geofence diameter
+     */
+    public GeofenceGridIndex(double cellSizeDegrees) {
+        this.cellSizeDegrees = cellSizeDegrees;
+    }
+
+    /**
+     * Inserts the circle or updates its geometry when it is already indexed
+     *
+     * Updates that keep the circle within the same cells (e.g. most drag events) do not touch the grid.
+     */
+    public void put(T value, double latitude, double longitude, double radius) {
+        Entry<T> entry = entries.get(value);
+        boolean isNew = entry == null;
+        if (isNew) {
+            entry = new Entry<>(value);
+            entries.put(value, entry);
+        }
+
+        int minLatCell = entry.minLatCell;
+        int maxLatCell = entry.maxLatCell;
+        int minLngCell = entry.minLngCell;
+        int maxLngCell = entry.maxLngCell;
+
+        entry.latitude = latitude;
+        entry.longitude = longitude;
+        entry.radius = radius;
+        computeCells(entry);
+
+        boolean isSameCells = !isNew && minLatCell == entry.minLatCell && maxLatCell == entry.maxLatCell
+                && minLngCell == entry.minLngCell && maxLngCell == entry.maxLngCell;
+        if (isSameCells) return;
+
+        if (!isNew) {
+            int newMinLatCell = entry.minLatCell;
+            int newMaxLatCell = entry.maxLatCell;
+            int newMinLngCell = entry.minLngCell;
+            int newMaxLngCell = entry.maxLngCell;
+            boolean isNewOversized = entry.isOversized;
+
+            entry.minLatCell = minLatCell;
+            entry.maxLatCell = maxLatCell;
+            entry.minLngCell = minLngCell;
+            entry.maxLngCell = maxLngCell;
+            entry.isOversized = isOversized(entry);
+            unlink(entry);
+
+            entry.minLatCell = newMinLatCell;
+            entry.maxLatCell = newMaxLatCell;
+            entry.minLngCell = newMinLngCell;
+            entry.maxLngCell = newMaxLngCell;
+            entry.isOversized = isNewOversized;
+        }
+        link(entry);
+    }
+
+    public boolean remove(T value) {
+        Entry<T> entry = entries.remove(value);
+        if (entry == null) return false;
+        unlink(entry);
+        return true;
+    }
+
+    public boolean contains(T value) {
+        return entries.containsKey(value);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        cellIndexes.clear();
+        cells.clear();
+        freeCellCount = 0;
+        oversized.clear();
+    }
+
+    /**
+     * Collects every circle containing the point
+     */
+    public void containing(double latitude, double longitude, List<T> out) {
+        ArrayList<Entry<T>> cell = cell(latCell(latitude), lngCell(longitude));
+        if (cell != null) collectContaining(cell, latitude, longitude, out);
+        collectContaining(oversized, latitude, longitude, out);
+    }
+
+    /**
+     * Collects every circle intersecting the bounding box
+     *
+     * @param west may be greater than east for boxes crossing the antimeridian
+     */
+    public void intersecting(double south, double west, double north, double east, List<T> out) {
+        int stamp = nextQueryStamp();
+        if (west > east) {
+            collectIntersecting(south, west, north, 180, stamp, out);
+            collectIntersecting(south, -180, north, east, stamp, out);
+        } else {
+            collectIntersecting(south, west, north, east, stamp, out);
+        }
+    }
+
+    /**
+     * Collects the k circles whose centers are closest to the point, closest first
+     */
+    public void nearest(double latitude, double longitude, int k, List<T> out) {
+        if (k <= 0 || entries.isEmpty()) return;
+
+        int stamp = nextQueryStamp();
+        NearestCollector<T> collector = new NearestCollector<>(k);
+
+        for (int i = 0; i < oversized.size(); i++) {
+            collector.offer(oversized.get(i), latitude, longitude);
+        }
+
+        int latCell = latCell(latitude);
+        int lngCell = lngCell(longitude);
+        long visitedCells = 0;
+
+        for (int ring = 0; ; ring++) {
+            int minLat = latCell - ring;
+            int maxLat = latCell + ring;
+            int minLng = lngCell - ring;
+            int maxLng = lngCell + ring;
+
+            for (int la = minLat; la <= maxLat; la++) {
+                boolean isEdgeRow = la == minLat || la == maxLat;
+                int step = isEdgeRow ? 1 : Math.max(1, maxLng - minLng);
+                for (int ln = minLng; ln <= maxLng; ln += step) {
+                    ArrayList<Entry<T>> cell = cell(la, ln);
+                    if (cell == null) continue;
+                    for (int i = 0; i < cell.size(); i++) {
+                        Entry<T> entry = cell.get(i);
+                        if (entry.queryStamp == stamp) continue;
+                        entry.queryStamp = stamp;
+                        collector.offer(entry, latitude, longitude);
+                    }
+                }
+            }
+            visitedCells += ring == 0 ? 1 : 8L * ring;
+
+            boolean coversOccupied = minLat <= minOccupiedLatCell && maxLat >= maxOccupiedLatCell
+                    && minLng <= minOccupiedLngCell && maxLng >= maxOccupiedLngCell;
+            if (coversOccupied) break;
+
+            if (collector.isFull() && collector.worstDistance() <= unvisitedLowerBound(latitude, longitude, minLat, maxLat, minLng, maxLng)) break;
+
+            if (visitedCells > entries.size()) {
+                // sparse grid, scanning everything is cheaper than walking empty rings
+                for (Entry<T> entry : entries.values()) {
+                    if (entry.queryStamp == stamp || entry.isOversized) continue;
+                    entry.queryStamp = stamp;
+                    collector.offer(entry, latitude, longitude);
+                }
+                break;
+            }
+        }
+
+        collector.drainTo(out);
+    }
+
+    private void collectContaining(ArrayList<Entry<T>> candidates, double latitude, double longitude, List<T> out) {
+        for (int i = 0; i < candidates.size(); i++) {
+            Entry<T> entry = candidates.get(i);
+            if (GeoDistance.haversine(entry.latitude, entry.longitude, latitude, longitude) <= entry.radius) {
+                out.add(entry.value);
+            }
+        }
+    }
+
+    private void collectIntersecting(double south, double west, double north, double east, int stamp, List<T> out) {
+        int minLat = latCell(south);
+        int maxLat = latCell(north);
+        int minLng = lngCell(west);
+        int maxLng = lngCell(east);
+        long cellCount = (long) (maxLat - minLat + 1) * (maxLng - minLng + 1);
+
+        if (cellCount > entries.size()) {
+            for (Entry<T> entry : entries.values()) {
+                collectIntersecting(entry, south, west, north, east, stamp, out);
+            }
+            return;
+        }
+
+        for (int la = minLat; la <= maxLat; la++) {
+            for (int ln = minLng; ln <= maxLng; ln++) {
+                ArrayList<Entry<T>> cell = cell(la, ln);
+                if (cell == null) continue;
+                for (int i = 0; i < cell.size(); i++) {
+                    collectIntersecting(cell.get(i), south, west, north, east, stamp, out);
+                }
+            }
+        }
+        for (int i = 0; i < oversized.size(); i++) {
+            collectIntersecting(oversized.get(i), south, west, north, east, stamp, out);
+        }
+    }
+
+    private void collectIntersecting(Entry<T> entry, double south, double west, double north, double east, int stamp, List<T> out) {
+        if (entry.queryStamp == stamp) return;
+        double nearestLat = Math.max(south, Math.min(north, entry.latitude));
+        double nearestLng = Math.max(west, Math.min(east, entry.longitude));
+        if (GeoDistance.haversine(entry.latitude, entry.longitude, nearestLat, nearestLng) <= entry.radius) {
+            entry.queryStamp = stamp;
+            out.add(entry.value);
+        }
+    }
+
+    /**
+     * Smallest possible distance from the point to any center outside the visited square of cells
+     */
+    private double unvisitedLowerBound(double latitude, double longitude, int minLat, int maxLat, int minLng, int maxLng) {
+        double southEdge = minLat * cellSizeDegrees;
+        double northEdge = (maxLat + 1) * cellSizeDegrees;
+        double westEdge = minLng * cellSizeDegrees;
+        double eastEdge = (maxLng + 1) * cellSizeDegrees;
+
+        double latGap = Math.min(latitude - southEdge, northEdge - latitude);
+        double latBound = Math.toRadians(latGap) * MarkerAreasConstants.RADIUS_OF_EARTH_METERS;
+
+        // points beside the square share its latitude band, hav(d) >= cos^2(maxLat) * hav(dLng)
+        double lngGap = Math.min(longitude - westEdge, eastEdge - longitude);
+        double maxAbsLatitude = Math.min(90, Math.max(Math.abs(southEdge), Math.abs(northEdge)));
+        double cosLat = Math.cos(Math.toRadians(maxAbsLatitude));
+        double lngBound = 2 * MarkerAreasConstants.RADIUS_OF_EARTH_METERS
+                * Math.asin(Math.min(1, cosLat * Math.sin(Math.toRadians(Math.min(180, lngGap)) / 2)));
+
+        return Math.min(latBound, lngBound);
+    }
+
+    private void computeCells(Entry<T> entry) {
+        double latSpan = Math.toDegrees(entry.radius / MarkerAreasConstants.RADIUS_OF_EARTH_METERS);
+        double minLatitude = Math.max(-90, entry.latitude - latSpan);
+        double maxLatitude = Math.min(90, entry.latitude + latSpan);
+        double cosLat = Math.cos(Math.toRadians(Math.max(Math.abs(minLatitude), Math.abs(maxLatitude))));
+        double lngSpan = cosLat <= 1e-9 ? 180 : Math.min(180, latSpan / cosLat);
+
+        entry.minLatCell = latCell(minLatitude);
+        entry.maxLatCell = latCell(maxLatitude);
+        entry.minLngCell = lngCell(Math.max(-180, entry.longitude - lngSpan));
+        entry.maxLngCell = lngCell(Math.min(180, entry.longitude + lngSpan));
+        entry.isOversized = isOversized(entry);
+    }
+
+    private static boolean isOversized(Entry<?> entry) {
+        long cellCount = (long) (entry.maxLatCell - entry.minLatCell + 1) * (entry.maxLngCell - entry.minLngCell + 1);
+        return cellCount > MAX_CELLS_PER_ENTRY;
+    }
+
+    private void link(Entry<T> entry) {
+        if (entry.isOversized) {
+            oversized.add(entry);
+            return;
+        }
+
+        for (int la = entry.minLatCell; la <= entry.maxLatCell; la++) {
+            for (int ln = entry.minLngCell; ln <= entry.maxLngCell; ln++) {
+                long key = cellKey(la, ln);
+                int cellIndex = cellIndexes.get(key, NO_CELL);
+                if (cellIndex == NO_CELL) {
+                    cellIndex = allocateCell();
+                    cellIndexes.put(key, cellIndex);
+                }
+                cells.get(cellIndex).add(entry);
+            }
+        }
+
+        minOccupiedLatCell = Math.min(minOccupiedLatCell, entry.minLatCell);
+        maxOccupiedLatCell = Math.max(maxOccupiedLatCell, entry.maxLatCell);
+        minOccupiedLngCell = Math.min(minOccupiedLngCell, entry.minLngCell);
+        maxOccupiedLngCell = Math.max(maxOccupiedLngCell, entry.maxLngCell);
+    }
+
+    private void unlink(Entry<T> entry) {
+        if (entry.isOversized) {
+            removeSwap(oversized, entry);
+            return;
+        }
+
+        for (int la = entry.minLatCell; la <= entry.maxLatCell; la++) {
+            for (int ln = entry.minLngCell; ln <= entry.maxLngCell; ln++) {
+                long key = cellKey(la, ln);
+                int cellIndex = cellIndexes.get(key, NO_CELL);
+                if (cellIndex == NO_CELL) continue;
+                ArrayList<Entry<T>> cell = cells.get(cellIndex);
+                removeSwap(cell, entry);
+                if (cell.isEmpty()) {
+                    cellIndexes.remove(key);
+                    freeCell(cellIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return null when no circle touches the cell
+     */
+    private ArrayList<Entry<T>> cell(int latCell, int lngCell) {
+        int cellIndex = cellIndexes.get(cellKey(latCell, lngCell), NO_CELL);
+        return cellIndex == NO_CELL ? null : cells.get(cellIndex);
+    }
+
+    /**
+     * @return index of an empty cell list, reusing a list freed by {@link #freeCell(int)} when possible
+     */
+    private int allocateCell() {
+        if (freeCellCount > 0) return freeCells[--freeCellCount];
+        cells.add(new ArrayList<Entry<T>>(4));
+        return cells.size() - 1;
+    }
+
+    private void freeCell(int cellIndex) {
+        if (freeCellCount == freeCells.length) freeCells = Arrays.copyOf(freeCells, freeCellCount * 2);
+        freeCells[freeCellCount++] = cellIndex;
+    }
+
+    private static <E> void removeSwap(ArrayList<E> list, E element) {
+        int index = list.indexOf(element);
+        if (index < 0) return;
+        int last = list.size() - 1;
+        list.set(index, list.get(last));
+        list.remove(last);
+    }
+
+    private int nextQueryStamp() {
+        return ++queryStamp;
+    }
+
+    private int latCell(double latitude) {
+        return (int) Math.floor(latitude / cellSizeDegrees);
+    }
+
+    private int lngCell(double longitude) {
+        return (int) Math.floor(longitude / cellSizeDegrees);
+    }
+
+    private static long cellKey(int latCell, int lngCell) {
+        return ((long) latCell << 32) | (lngCell & 0xffffffffL);
+    }
+
+    /**
+     * Bounded list of the k closest entries seen so far, kept sorted by distance
+     */
+    private static final class NearestCollector<T> {
+        private final Object[] values;
+        private final double[] distances;
+        private int size;
+
+        NearestCollector(int k) {
+            this.values = new Object[k];
+            this.distances = new double[k];
+        }
+
+        void offer(Entry<T> entry, double latitude, double longitude) {
+            double distance = GeoDistance.haversine(latitude, longitude, entry.latitude, entry.longitude);
+            if (isFull() && distance >= worstDistance()) return;
+
+            int index = isFull() ? size - 1 : size++;
+            while (index > 0 && distances[index - 1] > distance) {
+                distances[index] = distances[index - 1];
+                values[index] = values[index - 1];
+                index--;
+            }
+            distances[index] = distance;
+            values[index] = entry.value;
+        }
+
+        boolean isFull() {
+            return size == values.length;
+        }
+
+        double worstDistance() {
+            return distances[size - 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        void drainTo(List<T> out) {
+            for (int i = 0; i < size; i++) {
+                out.add((T) values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.Arrays;
+
+/**
+ * Overlapping pairs of circular geofences, found with a sweep line over latitude
+ *
+ * Circles are visited by their southern edge. A circle stays in the active band until the sweep
+ * passes its northern edge, and is only compared with the active circles whose longitude span it
+ * meets, so the pass is O(n log n + n * a), a being the number of circles sharing a latitude band,
+ * instead of comparing every pair. Two circles overlap when the haversine distance between their
+ * centers is less than the sum of their radii.
+ *
+ * Pairs are kept as two index columns, an adjacency table (neighbours of every circle) is built on
+ * first use.
+ */
+public class GeofenceOverlaps {
+
+    /**
+     * Southern edges are quantized to 1e-7 degrees above the south pole for the sort, the active band is
+     * kept slightly wider to stay exact. The largest key, 180 * SORT_SCALE, stays below 2^31 so it never
+     * reaches the sign bit once shifted into the high half of the sort key.
+     */
+    private static final double SORT_SCALE = 1e7;
+    private static final double SORT_SLACK = 1e-6;
+    private static final long MAX_SORT_KEY = (long) (180 * SORT_SCALE);
+
+    private final long[] ids;
+    private int[] firsts = new int[16];
+    private int[] seconds = new int[16];
+    private int size;
+
+    private int[] adjacencyStarts;
+    private int[] adjacency;
+
+    private GeofenceOverlaps(long[] ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * Finds every overlapping pair of the geofence set, indexes are slots of the set
+     */
+    public static GeofenceOverlaps find(GeofenceSet geofences) {
+        int count = geofences.size();
+        long[] ids = new long[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] radii = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = geofences.getId(i);
+            latitudes[i] = geofences.getLatitude(i);
+            longitudes[i] = geofences.getLongitude(i);
+            radii[i] = geofences.getRadius(i);
+        }
+        return find(ids, latitudes, longitudes, radii, count);
+    }
+
+    /**
+     * Finds every overlapping pair among the first count circles of the columns
+     *
+     * @param ids geofence ids, reported back by {@link #getFirstId(int)} and {@link #getSecondId(int)}
+     * @param radii radii in meters
+     */
+    public static GeofenceOverlaps find(long[] ids, double[] latitudes, double[] longitudes, double[] radii, int count) {
+        GeofenceOverlaps overlaps = new GeofenceOverlaps(Arrays.copyOf(ids, count));
+        if (count < 2) return overlaps;
+
+        double[] norths = new double[count];
+        double[] spans = new double[count];
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            double latitudeSpan = Math.toDegrees(radii[i] / MarkerAreasConstants.RADIUS_OF_EARTH_METERS);
+            norths[i] = latitudes[i] + latitudeSpan;
+            spans[i] = GeoDistance.radiusLongitude(latitudes[i], 0, radii[i]);
+            // sort key: quantized southern edge in the high bits, index in the low bits
+            double south = Math.max(-90, Math.min(90, latitudes[i] - latitudeSpan));
+            long key = (long) Math.floor((south + 90) * SORT_SCALE);
+            order[i] = Math.min(key, MAX_SORT_KEY) << 32 | i;
+        }
+        Arrays.sort(order);
+
+        int[] active = new int[16];
+        int activeCount = 0;
+        for (int k = 0; k < count; k++) {
+            int i = (int) order[k];
+            double south = (order[k] >>> 32) / SORT_SCALE - 90 - SORT_SLACK;
+
+            int kept = 0;
+            for (int a = 0; a < activeCount; a++) {
+                int j = active[a];
+                if (norths[j] < south) continue;
+                active[kept++] = j;
+
+                double deltaLongitude = Math.abs(longitudes[i] - longitudes[j]);
+                if (deltaLongitude > 180) deltaLongitude = 360 - deltaLongitude;
+                if (deltaLongitude > spans[i] + spans[j]) continue;
+                if (GeoDistance.haversine(latitudes[i], longitudes[i], latitudes[j], longitudes[j]) < radii[i] + radii[j]) {
+                    overlaps.add(Math.min(i, j), Math.max(i, j));
+                }
+            }
+            activeCount = kept;
+
+            if (activeCount == active.length) active = Arrays.copyOf(active, activeCount * 2);
+            active[activeCount++] = i;
+        }
+        return overlaps;
+    }
+
+    /**
+     * @return number of overlapping pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return index of the first circle of the pair, always lower than the second
+     */
+    public int getFirst(int pair) {
+        checkPair(pair);
+        return firsts[pair];
+    }
+
+    public int getSecond(int pair) {
+        checkPair(pair);
+        return seconds[pair];
+    }
+
+    public long getFirstId(int pair) {
+        return ids[getFirst(pair)];
+    }
+
+    public long getSecondId(int pair) {
+        return ids[getSecond(pair)];
+    }
+
+    /**
+     * @return number of circles overlapping the circle at the index
+     */
+    public int getNeighbourCount(int index) {
+        buildAdjacency();
+        return adjacencyStarts[index + 1] - adjacencyStarts[index];
+    }
+
+    /**
+     * @param k 0 to {@link #getNeighbourCount(int)} - 1
+     * @return index of the k-th circle overlapping the circle at the index
+     */
+    public int getNeighbour(int index, int k) {
+        if (k < 0 || k >= getNeighbourCount(index)) throw new IndexOutOfBoundsException("neighbour " + k + " of " + index);
+        return adjacency[adjacencyStarts[index] + k];
+    }
+
+    private void add(int first, int second) {
+        if (size == firsts.length) {
+            firsts = Arrays.copyOf(firsts, size * 2);
+            seconds = Arrays.copyOf(seconds, size * 2);
+        }
+        firsts[size] = first;
+        seconds[size] = second;
+        size++;
+    }
+
+    private void checkPair(int pair) {
+        if (pair < 0 || pair >= size) throw new IndexOutOfBoundsException("pair " + pair + ", size " + size);
+    }
+
+    private void buildAdjacency() {
+        if (adjacencyStarts != null) return;
+
+        int[] starts = new int[ids.length + 1];
+        for (int p = 0; p < size; p++) {
+            starts[firsts[p] + 1]++;
+            starts[seconds[p] + 1]++;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] neighbours = new int[size * 2];
+        int[] fill = Arrays.copyOf(starts, ids.length);
+        for (int p = 0; p < size; p++) {
+            neighbours[fill[firsts[p]]++] = seconds[p];
+            neighbours[fill[seconds[p]]++] = firsts[p];
+        }
+        this.adjacency = neighbours;
+        this.adjacencyStarts = starts;
+    }
+}
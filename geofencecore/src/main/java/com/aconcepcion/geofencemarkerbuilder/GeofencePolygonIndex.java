@@ -0,0 +1,224 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.Arrays;
+
+/**
+ * Point in polygon index over the vertices of a simple polygon
+ *
+ * The polygon is cut into horizontal slabs at every distinct vertex latitude. No vertex lies strictly
+ * inside a slab, so the edges crossing a slab never cross each other there and can be sorted from
+ * west to east once. A point test is a bounding box check, a binary search for the slab and a binary
+ * search for the number of edges west of the point, whose parity tells whether the point is inside:
+ * O(log n) per test after an O(n log n + k) build, k being the number of edge/slab crossings.
+ *
+ * Vertices are treated as planar longitude/latitude coordinates, which is accurate for geofence sized
+ * polygons. Polygons crossing the antimeridian are not supported.
+ *
+ * Immutable once built, safe to share between threads.
+ */
+public class GeofencePolygonIndex {
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    private final double south;
+    private final double north;
+    private final double west;
+    private final double east;
+
+    /**
+     * Distinct vertex latitudes, slab i spans slabBounds[i] to slabBounds[i + 1]
+     */
+    private final double[] slabBounds;
+
+    /**
+     * Edges of slab i are slabEdges[slabStarts[i]] to slabEdges[slabStarts[i + 1] - 1], sorted west to east.
+     * Edge e joins vertex e and vertex e + 1 (wrapping).
+     */
+    private final int[] slabStarts;
+    private final int[] slabEdges;
+
+    /**
+     * @param latitudes vertex latitudes, in order around the polygon
+     * @param longitudes vertex longitudes, same order
+     */
+    public GeofencePolygonIndex(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) throw new IllegalArgumentException("latitudes and longitudes differ in length");
+        if (latitudes.length < 3) throw new IllegalArgumentException("a polygon needs at least 3 vertices");
+
+        this.latitudes = latitudes.clone();
+        this.longitudes = longitudes.clone();
+        int n = latitudes.length;
+
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLng = Double.POSITIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minLat = Math.min(minLat, latitudes[i]);
+            maxLat = Math.max(maxLat, latitudes[i]);
+            minLng = Math.min(minLng, longitudes[i]);
+            maxLng = Math.max(maxLng, longitudes[i]);
+        }
+        this.south = minLat;
+        this.north = maxLat;
+        this.west = minLng;
+        this.east = maxLng;
+
+        double[] sorted = this.latitudes.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || sorted[i] != sorted[distinct - 1]) sorted[distinct++] = sorted[i];
+        }
+        this.slabBounds = Arrays.copyOf(sorted, distinct);
+        int slabs = distinct - 1;
+
+        // count the slabs each edge crosses to size the flat edge table
+        int[] counts = new int[slabs + 1];
+        for (int e = 0; e < n; e++) {
+            int from = Arrays.binarySearch(slabBounds, Math.min(lat(e), lat(e + 1)));
+            int to = Arrays.binarySearch(slabBounds, Math.max(lat(e), lat(e + 1)));
+            for (int s = from; s < to; s++) counts[s]++;
+        }
+        this.slabStarts = new int[slabs + 1];
+        for (int s = 0; s < slabs; s++) {
+            slabStarts[s + 1] = slabStarts[s] + counts[s];
+        }
+        this.slabEdges = new int[slabStarts[slabs]];
+
+        int[] fill = Arrays.copyOf(slabStarts, slabs);
+        for (int e = 0; e < n; e++) {
+            int from = Arrays.binarySearch(slabBounds, Math.min(lat(e), lat(e + 1)));
+            int to = Arrays.binarySearch(slabBounds, Math.max(lat(e), lat(e + 1)));
+            for (int s = from; s < to; s++) slabEdges[fill[s]++] = e;
+        }
+
+        // sort the edges of every slab by their longitude at the middle of the slab
+        for (int s = 0; s < slabs; s++) {
+            double middle = (slabBounds[s] + slabBounds[s + 1]) / 2;
+            sortEdges(slabStarts[s], slabStarts[s + 1], middle);
+        }
+    }
+
+    /**
+     * @return true when the point is inside the polygon, points exactly on an edge may go either way
+     */
+    public boolean contains(double latitude, double longitude) {
+        if (latitude < south || latitude >= north || longitude < west || longitude > east) return false;
+
+        int slab = slabOf(latitude);
+        int low = slabStarts[slab];
+        int high = slabStarts[slab + 1];
+
+        // number of edges west of the point
+        int start = low;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (longitudeAt(slabEdges[middle], latitude) < longitude) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return ((low - start) & 1) == 1;
+    }
+
+    public int size() {
+        return latitudes.length;
+    }
+
+    public double getSouth() {
+        return south;
+    }
+
+    public double getNorth() {
+        return north;
+    }
+
+    public double getWest() {
+        return west;
+    }
+
+    public double getEast() {
+        return east;
+    }
+
+    /**
+     * @return slab containing the latitude, clamped to the slabs
+     */
+    private int slabOf(double latitude) {
+        int index = Arrays.binarySearch(slabBounds, latitude);
+        if (index < 0) index = -index - 2;
+        return Math.max(0, Math.min(index, slabBounds.length - 2));
+    }
+
+    private double lat(int vertex) {
+        return latitudes[vertex % latitudes.length];
+    }
+
+    private double lng(int vertex) {
+        return longitudes[vertex % longitudes.length];
+    }
+
+    private double longitudeAt(int edge, double latitude) {
+        double lat0 = lat(edge), lat1 = lat(edge + 1);
+        double lng0 = lng(edge), lng1 = lng(edge + 1);
+        return lng0 + (latitude - lat0) * (lng1 - lng0) / (lat1 - lat0);
+    }
+
+    private void sortEdges(int from, int to, double latitude) {
+        int count = to - from;
+        if (count < 2) return;
+        double[] keys = new double[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = longitudeAt(slabEdges[from + i], latitude);
+        }
+        quickSort(keys, slabEdges, from, 0, count - 1);
+    }
+
+    /**
+     * Sorts keys[low..high] ascending, moving edges[offset + i] along with keys[i]
+     */
+    private static void quickSort(double[] keys, int[] edges, int offset, int low, int high) {
+        while (low < high) {
+            if (high - low < 16) {
+                for (int i = low + 1; i <= high; i++) {
+                    double key = keys[i];
+                    int edge = edges[offset + i];
+                    int j = i - 1;
+                    while (j >= low && keys[j] > key) {
+                        keys[j + 1] = keys[j];
+                        edges[offset + j + 1] = edges[offset + j];
+                        j--;
+                    }
+                    keys[j + 1] = key;
+                    edges[offset + j + 1] = edge;
+                }
+                return;
+            }
+            double pivot = keys[(low + high) >>> 1];
+            int i = low, j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    double key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    int edge = edges[offset + i];
+                    edges[offset + i] = edges[offset + j];
+                    edges[offset + j] = edge;
+                    i++;
+                    j--;
+                }
+            }
+            // recurse into the smaller half, loop on the larger one
+            if (j - low < high - i) {
+                quickSort(keys, edges, offset, low, j);
+                low = i;
+            } else {
+                quickSort(keys, edges, offset, i, high);
+                high = j;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable set of circular geofences with a spatial index, evaluated by {@link GeofenceTransitionEngine}
+ *
+ * Geofences are stored in primitive columns and indexed by slot. Once built the set is only read,
+ * so one instance can be shared by any number of engines and threads.
+ */
+public class GeofenceSet {
+
+    public static final double DEFAULT_CANDIDATE_MARGIN_METERS = 200;
+
+    private final long[] ids;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] radii;
+    private final double candidateMarginMeters;
+    private final GeofenceGridIndex<Slot> index;
+
+    /**
+     * Index value pointing back to a slot of the columns
+     */
+    static final class Slot {
+        final int slot;
+
+        Slot(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    public static class Builder {
+        private long[] ids = new long[16];
+        private double[] latitudes = new double[16];
+        private double[] longitudes = new double[16];
+        private double[] radii = new double[16];
+        private int size;
+        private double candidateMarginMeters = DEFAULT_CANDIDATE_MARGIN_METERS;
+        private double cellSizeDegrees = GeofenceGridIndex.DEFAULT_CELL_SIZE_DEGREES;
+
+        /**
+         * @param id geofence id reported with every transition
+         * @param latitude center latitude in degrees
+         * @param longitude center longitude in degrees
+         * @param radius radius in meters
+         */
+        public Builder add(long id, double latitude, double longitude, double radius) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+                radii = Arrays.copyOf(radii, capacity);
+            }
+            ids[size] = id;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            radii[size] = radius;
+            size++;
+            return this;
+        }
+
+        /**
+         * Distance beyond the radius within which a geofence is still considered for a fix.
+         * Bounds the hysteresis band used by the engines.
+         */
+        public Builder candidateMarginMeters(double candidateMarginMeters) {
+            this.candidateMarginMeters = candidateMarginMeters;
+            return this;
+        }
+
+        public Builder cellSizeDegrees(double cellSizeDegrees) {
+            this.cellSizeDegrees = cellSizeDegrees;
+            return this;
+        }
+
+        public GeofenceSet build() {
+            return new GeofenceSet(this);
+        }
+    }
+
+    private GeofenceSet(Builder b) {
+        this.ids = Arrays.copyOf(b.ids, b.size);
+        this.latitudes = Arrays.copyOf(b.latitudes, b.size);
+        this.longitudes = Arrays.copyOf(b.longitudes, b.size);
+        this.radii = Arrays.copyOf(b.radii, b.size);
+        this.candidateMarginMeters = b.candidateMarginMeters;
+        this.index = new GeofenceGridIndex<>(b.cellSizeDegrees);
+
+        for (int slot = 0; slot < ids.length; slot++) {
+            index.put(new Slot(slot), latitudes[slot], longitudes[slot], radii[slot] + candidateMarginMeters);
+        }
+    }
+
+    /**
+     * Collects the geofences whose radius grown by the candidate margin contains the point.
+     * Read only, safe to call from several threads.
+     */
+    void candidates(double latitude, double longitude, List<Slot> out) {
+        index.containing(latitude, longitude, out);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long getId(int slot) {
+        return ids[slot];
+    }
+
+    public double getLatitude(int slot) {
+        return latitudes[slot];
+    }
+
+    public double getLongitude(int slot) {
+        return longitudes[slot];
+    }
+
+    public double getRadius(int slot) {
+        return radii[slot];
+    }
+
+    public double getCandidateMarginMeters() {
+        return candidateMarginMeters;
+    }
+}
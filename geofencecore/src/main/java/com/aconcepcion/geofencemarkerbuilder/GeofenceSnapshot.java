@@ -0,0 +1,230 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Versioned binary snapshot of saved geofences, read through a memory mapping
+ *
+ * The file is a 16 byte header (magic, version, record size, record count) followed by fixed size
+ * little endian records. Opening a snapshot only maps the file, records are read in place by index,
+ * so restoring a large set costs no parsing and no per-record allocation.
+ *
+ * Record layout (version 1, 56 bytes):
+ * <pre>
+ *  0 long   id
+ *  8 double latitude
+ * 16 double longitude
+ * 24 double radius
+ * 32 int    min radius
+ * 36 int    max radius
+ * 40 int    fill color
+ * 44 int    stroke color
+ * 48 float  stroke width
+ * 52 int    reserved
+ * </pre>
+ * Readers use the record size of the header as stride, so later versions may append fields.
+ */
+public class GeofenceSnapshot implements Closeable {
+
+    public static final int MAGIC = 0x47465331;
+    public static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 56;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int recordSize;
+    private final int size;
+
+    private GeofenceSnapshot(RandomAccessFile file, MappedByteBuffer buffer, int recordSize, int size) {
+        this.file = file;
+        this.buffer = buffer;
+        this.recordSize = recordSize;
+        this.size = size;
+    }
+
+    /**
+     * Maps a snapshot written by {@link Writer}
+     *
+     * @throws IOException when the file can not be read or is not a snapshot of a supported version
+     */
+    public static GeofenceSnapshot open(File snapshotFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE) throw new IOException("Not a geofence snapshot: " + snapshotFile);
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC) throw new IOException("Not a geofence snapshot: " + snapshotFile);
+            int version = buffer.getInt(4);
+            if (version < 1 || version > VERSION) throw new IOException("Unsupported geofence snapshot version " + version);
+            int recordSize = buffer.getInt(8);
+            int size = buffer.getInt(12);
+            if (recordSize < RECORD_SIZE || size < 0 || HEADER_SIZE + (long) recordSize * size > length) {
+                throw new IOException("Corrupt geofence snapshot: " + snapshotFile);
+            }
+            return new GeofenceSnapshot(file, buffer, recordSize, size);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getId(int index) {
+        return buffer.getLong(offset(index));
+    }
+
+    public double getLatitude(int index) {
+        return buffer.getDouble(offset(index) + 8);
+    }
+
+    public double getLongitude(int index) {
+        return buffer.getDouble(offset(index) + 16);
+    }
+
+    public double getRadius(int index) {
+        return buffer.getDouble(offset(index) + 24);
+    }
+
+    public int getMinRadius(int index) {
+        return buffer.getInt(offset(index) + 32);
+    }
+
+    public int getMaxRadius(int index) {
+        return buffer.getInt(offset(index) + 36);
+    }
+
+    public int getFillColor(int index) {
+        return buffer.getInt(offset(index) + 40);
+    }
+
+    public int getStrokeColor(int index) {
+        return buffer.getInt(offset(index) + 44);
+    }
+
+    public float getStrokeWidth(int index) {
+        return buffer.getFloat(offset(index) + 48);
+    }
+
+    /**
+     * Closes the file, records must not be read afterwards
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return HEADER_SIZE + index * recordSize;
+    }
+
+    /**
+     * Writes a snapshot to a temporary file and moves it over the target on close,
+     * so readers never see a partially written snapshot
+     */
+    public static class Writer implements Closeable {
+
+        private final File target;
+        private final File temp;
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private int size;
+        private boolean isClosed;
+
+        public Writer(File target) throws IOException {
+            this.target = target;
+            this.temp = new File(target.getPath() + ".tmp");
+            this.file = new RandomAccessFile(temp, "rw");
+            this.file.setLength(0);
+            this.channel = file.getChannel();
+            // header is written on close, once the count is known
+            channel.position(HEADER_SIZE);
+        }
+
+        public Writer add(long id, double latitude, double longitude, double radius, int minRadius, int maxRadius,
+                          int fillColor, int strokeColor, float strokeWidth) throws IOException {
+            if (buffer.remaining() < RECORD_SIZE) flush();
+            buffer.putLong(id)
+                    .putDouble(latitude)
+                    .putDouble(longitude)
+                    .putDouble(radius)
+                    .putInt(minRadius)
+                    .putInt(maxRadius)
+                    .putInt(fillColor)
+                    .putInt(strokeColor)
+                    .putFloat(strokeWidth)
+                    .putInt(0);
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Completes the header, syncs the file and replaces the target
+         *
+         * @throws IOException when the snapshot could not be completed, the temporary file is deleted
+         * and the target is left untouched
+         */
+        @Override
+        public void close() throws IOException {
+            if (isClosed) return;
+            boolean isReplaced = false;
+            try {
+                try {
+                    flush();
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                    header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(size).flip();
+                    channel.position(0);
+                    while (header.hasRemaining()) channel.write(header);
+                    channel.force(false);
+                } finally {
+                    file.close();
+                }
+                if (!temp.renameTo(target)) throw new IOException("Could not replace " + target);
+                isReplaced = true;
+            } finally {
+                isClosed = true;
+                if (!isReplaced) temp.delete();
+            }
+        }
+
+        /**
+         * Discards the snapshot being written, the target is left untouched
+         */
+        public void abort() {
+            if (isClosed) return;
+            isClosed = true;
+            try {
+                file.close();
+            } catch (IOException ignored) {
+            }
+            temp.delete();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
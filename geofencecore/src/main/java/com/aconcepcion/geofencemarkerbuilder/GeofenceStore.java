@@ -0,0 +1,266 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Struct of arrays backing store for geofences
+ *
+ * Every geofence occupies a slot across primitive columns (id, center, radius, min/max radius and
+ * style index), so a geofence costs a few dozen bytes instead of an object graph, and bulk scans
+ * walk contiguous arrays. Freed slots are recycled through a free list.
+ *
+ * Styles are interned: equal styles share one entry of the style table and geofences only store
+ * its index. Entries are reference counted by the slots using them, the entry of a style no slot
+ * uses any more is reused for the next new style, so recoloring circles does not grow the table.
+ *
+ * Not thread safe.
+ *
+ * @param <S> style type, must implement equals and hashCode
+ */
+public class GeofenceStore<S> {
+
+    public static final int NO_SLOT = -1;
+
+    private static final int FREE = -1;
+
+    private long[] ids;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] radii;
+    private int[] minRadii;
+    private int[] maxRadii;
+    private int[] styleIndexes;
+
+    private int[] freeSlots = new int[8];
+    private int freeCount;
+    private int highWater;
+    private int size;
+
+    private final ArrayList<S> styles = new ArrayList<>();
+    private final HashMap<S, Integer> styleIndexByStyle = new HashMap<>();
+    private int[] styleReferences = new int[8];
+    private boolean[] isStyleFree = new boolean[8];
+    private int[] freeStyles = new int[8];
+    private int freeStyleCount;
+
+    public GeofenceStore() {
+        this(16);
+    }
+
+    public GeofenceStore(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        ids = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        radii = new double[capacity];
+        minRadii = new int[capacity];
+        maxRadii = new int[capacity];
+        styleIndexes = new int[capacity];
+    }
+
+    /**
+     * Reserves a slot, reusing a freed one when available
+     */
+    public int allocate(long id, double latitude, double longitude, double radius, int minRadius, int maxRadius, int styleIndex) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (highWater == ids.length) grow(highWater * 2);
+            slot = highWater++;
+        }
+        ids[slot] = id;
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        radii[slot] = radius;
+        minRadii[slot] = minRadius;
+        maxRadii[slot] = maxRadius;
+        styleIndexes[slot] = styleIndex;
+        reference(styleIndex);
+        size++;
+        return slot;
+    }
+
+    public void free(int slot) {
+        if (!isLive(slot)) return;
+        release(styleIndexes[slot]);
+        styleIndexes[slot] = FREE;
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    /**
+     * Frees every slot and empties the style table
+     */
+    public void clear() {
+        freeCount = 0;
+        highWater = 0;
+        size = 0;
+        styles.clear();
+        styleIndexByStyle.clear();
+        Arrays.fill(isStyleFree, false);
+        freeStyleCount = 0;
+    }
+
+    /**
+     * A new entry nothing references yet may be reused by the next new style, so the index must be
+     * handed to {@link #allocate} or {@link #setStyleIndex} before interning another style.
+     *
+     * @return index of the style in the style table, equal styles share an index
+     */
+    public int internStyle(S style) {
+        Integer index = styleIndexByStyle.get(style);
+        if (index != null) return index;
+
+        int styleIndex = reusableStyle();
+        if (styleIndex != -1) {
+            styleIndexByStyle.remove(styles.get(styleIndex));
+            styles.set(styleIndex, style);
+        } else {
+            styleIndex = styles.size();
+            styles.add(style);
+            if (styleIndex == styleReferences.length) {
+                styleReferences = Arrays.copyOf(styleReferences, styleIndex * 2);
+                isStyleFree = Arrays.copyOf(isStyleFree, styleIndex * 2);
+            }
+            styleReferences[styleIndex] = 0;
+        }
+        styleIndexByStyle.put(style, styleIndex);
+        markStyleFree(styleIndex);
+        return styleIndex;
+    }
+
+    /**
+     * @return index of the style in the style table, -1 when no slot uses it
+     */
+    public int indexOfStyle(S style) {
+        Integer index = styleIndexByStyle.get(style);
+        return index != null && styleReferences[index] > 0 ? index : -1;
+    }
+
+    public S getStyle(int styleIndex) {
+        return styles.get(styleIndex);
+    }
+
+    /**
+     * @return number of entries of the style table, including entries no slot uses
+     */
+    public int styleCount() {
+        return styles.size();
+    }
+
+    /**
+     * @return number of slots using the style
+     */
+    public int getStyleReferences(int styleIndex) {
+        return styleReferences[styleIndex];
+    }
+
+    /**
+     * @return number of live slots
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return upper bound (exclusive) of the slots ever allocated, live slots are checked with {@link #isLive(int)}
+     */
+    public int slotLimit() {
+        return highWater;
+    }
+
+    public boolean isLive(int slot) {
+        return slot >= 0 && slot < highWater && styleIndexes[slot] != FREE;
+    }
+
+    public long getId(int slot) {
+        return ids[slot];
+    }
+
+    public double getLatitude(int slot) {
+        return latitudes[slot];
+    }
+
+    public double getLongitude(int slot) {
+        return longitudes[slot];
+    }
+
+    public double getRadius(int slot) {
+        return radii[slot];
+    }
+
+    public int getMinRadius(int slot) {
+        return minRadii[slot];
+    }
+
+    public int getMaxRadius(int slot) {
+        return maxRadii[slot];
+    }
+
+    public int getStyleIndex(int slot) {
+        return styleIndexes[slot];
+    }
+
+    public void setId(int slot, long id) {
+        ids[slot] = id;
+    }
+
+    public void setCenter(int slot, double latitude, double longitude) {
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+    }
+
+    public void setRadius(int slot, double radius) {
+        radii[slot] = radius;
+    }
+
+    public void setStyleIndex(int slot, int styleIndex) {
+        int previous = styleIndexes[slot];
+        if (previous == styleIndex) return;
+        reference(styleIndex);
+        styleIndexes[slot] = styleIndex;
+        release(previous);
+    }
+
+    private void reference(int styleIndex) {
+        styleReferences[styleIndex]++;
+    }
+
+    private void release(int styleIndex) {
+        if (--styleReferences[styleIndex] == 0) markStyleFree(styleIndex);
+    }
+
+    private void markStyleFree(int styleIndex) {
+        if (isStyleFree[styleIndex]) return;
+        isStyleFree[styleIndex] = true;
+        if (freeStyleCount == freeStyles.length) freeStyles = Arrays.copyOf(freeStyles, freeStyleCount * 2);
+        freeStyles[freeStyleCount++] = styleIndex;
+    }
+
+    /**
+     * @return index of an entry no slot uses, -1 when there is none. Entries referenced again since they
+     * were freed are dropped from the free list on the way.
+     */
+    private int reusableStyle() {
+        while (freeStyleCount > 0) {
+            int styleIndex = freeStyles[--freeStyleCount];
+            isStyleFree[styleIndex] = false;
+            if (styleReferences[styleIndex] == 0) return styleIndex;
+        }
+        return -1;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        radii = Arrays.copyOf(radii, capacity);
+        minRadii = Arrays.copyOf(minRadii, capacity);
+        maxRadii = Arrays.copyOf(maxRadii, capacity);
+        styleIndexes = Arrays.copyOf(styleIndexes, capacity);
+    }
+}
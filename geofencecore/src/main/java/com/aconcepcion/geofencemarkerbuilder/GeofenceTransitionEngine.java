@@ -0,0 +1,201 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Evaluates a stream of location fixes against a {@link GeofenceSet} and emits enter, exit and dwell transitions
+ *
+ * Only the geofences the device is currently inside are kept as state, so the engine is cheap to keep per
+ * device. Each fix looks at those and at the candidates returned by the set's spatial index, never at the
+ * whole set.
+ *
+ * Boundaries are accuracy aware: a fix with accuracy {@code a} uses a hysteresis band
+ * {@code h = clamp(a * accuracyFactor, minHysteresisMeters, candidate margin)}. A geofence is entered when the
+ * fix is at least {@code h} inside the radius and exited when it is at least {@code h} outside, so jitter
+ * around the boundary and inaccurate fixes do not produce transitions. The inner band is capped at half the
+ * radius, so geofences smaller than the band can still be entered: from the inner half of their radius.
+ * Distances are great-circle distances, the model map circles are drawn with.
+ *
+ * Runs on a plain JVM. Not thread safe, use one engine per stream; the set can be shared.
+ */
+public class GeofenceTransitionEngine {
+
+    public static enum Transition {enter, exit, dwell}
+
+    private final GeofenceSet geofenceSet;
+    private final TransitionListener transitionListener;
+    private final double minHysteresisMeters;
+    private final double accuracyFactor;
+    private final long dwellMillis;
+
+    private int[] insideSlots = new int[4];
+    private long[] enteredAt = new long[4];
+    private boolean[] isDwellReported = new boolean[4];
+    private int insideCount;
+    private long lastFixTime = Long.MIN_VALUE;
+
+    private final ArrayList<GeofenceSet.Slot> candidates = new ArrayList<>();
+
+    public static class Builder {
+        private final GeofenceSet geofenceSet;
+        private TransitionListener transitionListener;
+        private double minHysteresisMeters = 5;
+        private double accuracyFactor = 1;
+        private long dwellMillis = -1;
+
+        public Builder(GeofenceSet geofenceSet) {
+            this.geofenceSet = geofenceSet;
+        }
+
+        public Builder listener(TransitionListener transitionListener) {
+            this.transitionListener = transitionListener;
+            return this;
+        }
+
+        /**
+         * Smallest hysteresis band, used for very accurate fixes
+         */
+        public Builder minHysteresisMeters(double minHysteresisMeters) {
+            this.minHysteresisMeters = minHysteresisMeters;
+            return this;
+        }
+
+        /**
+         * Multiplier applied to the fix accuracy to get the hysteresis band
+         */
+        public Builder accuracyFactor(double accuracyFactor) {
+            this.accuracyFactor = accuracyFactor;
+            return this;
+        }
+
+        /**
+         * Time spent inside a geofence before a dwell transition is emitted, -1 (default) disables dwell
+         */
+        public Builder dwellMillis(long dwellMillis) {
+            this.dwellMillis = dwellMillis;
+            return this;
+        }
+
+        public GeofenceTransitionEngine build() {
+            return new GeofenceTransitionEngine(this);
+        }
+    }
+
+    private GeofenceTransitionEngine(Builder b) {
+        this.geofenceSet            =   b.geofenceSet;
+        this.transitionListener     =   b.transitionListener;
+        this.minHysteresisMeters    =   Math.min(b.minHysteresisMeters, b.geofenceSet.getCandidateMarginMeters());
+        this.accuracyFactor         =   b.accuracyFactor;
+        this.dwellMillis            =   b.dwellMillis;
+    }
+
+    /**
+     * Feeds the next fix of the stream, fixes older than the previous one are ignored
+     *
+     * @param timeMillis time of the fix
+     * @param accuracyMeters horizontal accuracy of the fix, 0 when unknown
+     */
+    public void onLocation(long timeMillis, double latitude, double longitude, float accuracyMeters) {
+        if (timeMillis < lastFixTime) return;
+        lastFixTime = timeMillis;
+
+        double hysteresis = Math.max(minHysteresisMeters,
+                Math.min(accuracyMeters * accuracyFactor, geofenceSet.getCandidateMarginMeters()));
+
+        // exits and dwells of the geofences we are in
+        for (int i = insideCount - 1; i >= 0; i--) {
+            int slot = insideSlots[i];
+            double distance = distance(slot, latitude, longitude);
+
+            if (distance >= geofenceSet.getRadius(slot) + hysteresis) {
+                removeInside(i);
+                emit(slot, Transition.exit, timeMillis, latitude, longitude);
+            } else if (dwellMillis >= 0 && !isDwellReported[i] && timeMillis - enteredAt[i] >= dwellMillis) {
+                isDwellReported[i] = true;
+                emit(slot, Transition.dwell, timeMillis, latitude, longitude);
+            }
+        }
+
+        // enters among the candidates of the spatial index
+        candidates.clear();
+        geofenceSet.candidates(latitude, longitude, candidates);
+        for (int c = 0; c < candidates.size(); c++) {
+            int slot = candidates.get(c).slot;
+            if (indexOfInside(slot) >= 0) continue;
+
+            double distance = distance(slot, latitude, longitude);
+            double radius = geofenceSet.getRadius(slot);
+            if (distance <= radius - Math.min(hysteresis, radius / 2)) {
+                addInside(slot, timeMillis);
+                emit(slot, Transition.enter, timeMillis, latitude, longitude);
+                if (dwellMillis == 0) {
+                    isDwellReported[insideCount - 1] = true;
+                    emit(slot, Transition.dwell, timeMillis, latitude, longitude);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of geofences the stream is currently inside
+     */
+    public int getInsideCount() {
+        return insideCount;
+    }
+
+    /**
+     * @return whether the stream is currently inside the geofence with the given id
+     */
+    public boolean isInside(long geofenceId) {
+        for (int i = 0; i < insideCount; i++) {
+            if (geofenceSet.getId(insideSlots[i]) == geofenceId) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forgets every inside state without emitting exits, e.g. when a stream restarts
+     */
+    public void reset() {
+        insideCount = 0;
+        lastFixTime = Long.MIN_VALUE;
+    }
+
+    private double distance(int slot, double latitude, double longitude) {
+        return GeoDistance.haversine(geofenceSet.getLatitude(slot), geofenceSet.getLongitude(slot), latitude, longitude);
+    }
+
+    private void emit(int slot, Transition transition, long timeMillis, double latitude, double longitude) {
+        if (transitionListener != null) {
+            transitionListener.onTransition(geofenceSet.getId(slot), transition, timeMillis, latitude, longitude);
+        }
+    }
+
+    private int indexOfInside(int slot) {
+        for (int i = 0; i < insideCount; i++) {
+            if (insideSlots[i] == slot) return i;
+        }
+        return -1;
+    }
+
+    private void addInside(int slot, long timeMillis) {
+        if (insideCount == insideSlots.length) {
+            int capacity = insideCount * 2;
+            insideSlots = Arrays.copyOf(insideSlots, capacity);
+            enteredAt = Arrays.copyOf(enteredAt, capacity);
+            isDwellReported = Arrays.copyOf(isDwellReported, capacity);
+        }
+        insideSlots[insideCount] = slot;
+        enteredAt[insideCount] = timeMillis;
+        isDwellReported[insideCount] = false;
+        insideCount++;
+    }
+
+    private void removeInside(int i) {
+        int last = --insideCount;
+        insideSlots[i] = insideSlots[last];
+        enteredAt[i] = enteredAt[last];
+        isDwellReported[i] = isDwellReported[last];
+    }
+}
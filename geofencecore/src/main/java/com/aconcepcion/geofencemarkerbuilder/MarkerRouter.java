@@ -0,0 +1,88 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.HashMap;
+
+/**
+ * Routes marker events to the object owning the marker
+ *
+ * Map callbacks hand out a new marker wrapper for every event, so markers are routed by id. Every
+ * marker is registered with its owner, its role in the owner (e.g. center or resizer of a circle, vertex
+ * of a polygon) and the handler of that kind of owner, so an event costs a single hash lookup whatever
+ * the number of owners and kinds of owners.
+ *
+ * Not thread safe.
+ *
+ * @param <M> marker type handed to the handlers
+ */
+public class MarkerRouter<M> {
+
+    public static enum Event {dragStart, drag, dragEnd, click}
+
+    /**
+     * Receives the events of the markers of one kind of owner
+     */
+    public interface Handler<O, M> {
+
+        /**
+         * @param role role the marker was registered with
+         */
+        void onMarkerEvent(O owner, int role, Event event, M marker);
+    }
+
+    private static final class Route<M> {
+        final Object owner;
+        final int role;
+        final Handler<Object, M> handler;
+
+        Route(Object owner, int role, Handler<Object, M> handler) {
+            this.owner = owner;
+            this.role = role;
+            this.handler = handler;
+        }
+    }
+
+    private final HashMap<String, Route<M>> routes = new HashMap<>();
+
+    /**
+     * Registers the marker, replacing any previous route of the marker id
+     */
+    @SuppressWarnings("unchecked")
+    public <O> void put(String markerId, O owner, int role, Handler<? super O, M> handler) {
+        routes.put(markerId, new Route<>(owner, role, (Handler<Object, M>) handler));
+    }
+
+    /**
+     * @return false when the marker was not registered
+     */
+    public boolean remove(String markerId) {
+        return routes.remove(markerId) != null;
+    }
+
+    /**
+     * @return owner of the marker, null when the marker is not registered
+     */
+    public Object getOwner(String markerId) {
+        Route<M> route = routes.get(markerId);
+        return route != null ? route.owner : null;
+    }
+
+    /**
+     * Hands the event to the handler of the marker's owner
+     *
+     * @return false when the marker is not registered, no handler was called
+     */
+    public boolean dispatch(String markerId, Event event, M marker) {
+        Route<M> route = routes.get(markerId);
+        if (route == null) return false;
+        route.handler.onMarkerEvent(route.owner, route.role, event, marker);
+        return true;
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    public void clear() {
+        routes.clear();
+    }
+}
@@ -0,0 +1,16 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+/**
+ * Receives the transitions emitted by {@link GeofenceTransitionEngine}
+ */
+public interface TransitionListener {
+
+    /**
+     * @param geofenceId id of the geofence given to {@link GeofenceSet.Builder#add(long, double, double, double)}
+     * @param transition kind of transition
+     * @param timeMillis time of the fix that caused the transition
+     * @param latitude latitude of that fix
+     * @param longitude longitude of that fix
+     */
+    void onTransition(long geofenceId, GeofenceTransitionEngine.Transition transition, long timeMillis, double latitude, double longitude);
+}
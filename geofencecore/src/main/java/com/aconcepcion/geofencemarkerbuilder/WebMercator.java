@@ -0,0 +1,51 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+/**
+ * Web Mercator projection math, as used by map tiles
+ *
+ * Coordinates are normalized: x and y run from 0 to 1 across the world, y grows southwards.
+ * At zoom z the world is {@code 256 * 2^z} dp wide.
+ */
+public class WebMercator {
+
+    /**
+     * Latitude at which the projected world becomes square
+     */
+    public static final double MAX_LATITUDE = 85.05112878;
+
+    public static final int TILE_SIZE_DP = 256;
+
+    private static final double EARTH_CIRCUMFERENCE_METERS = 2 * Math.PI * MarkerAreasConstants.RADIUS_OF_EARTH_METERS;
+
+    public static double x(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    public static double y(double latitude) {
+        latitude = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+        double sin = Math.sin(Math.toRadians(latitude));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    public static double longitude(double x) {
+        return x * 360 - 180;
+    }
+
+    public static double latitude(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /**
+     * @return ground distance in meters covered by one normalized unit at the latitude
+     */
+    public static double metersPerUnit(double latitude) {
+        return EARTH_CIRCUMFERENCE_METERS * Math.cos(Math.toRadians(latitude));
+    }
+
+    /**
+     * @return ground distance in meters covered by one dp at the latitude and zoom
+     */
+    public static double metersPerDp(double latitude, double zoom) {
+        return metersPerUnit(latitude) / (TILE_SIZE_DP * Math.pow(2, zoom));
+    }
+}
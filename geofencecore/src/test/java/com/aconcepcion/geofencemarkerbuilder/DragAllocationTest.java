@@ -0,0 +1,156 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays the platform-free work of a drag tick and checks that it allocates nothing once warmed up:
+ * marker routing through {@link MarkerRouter}, store update, radius from the resizer position and grid
+ * index update.
+ *
+ * GeofenceCircle and MarkerBuilderManagerV2 need the Maps API and are out of scope: Marker.getPosition()
+ * returns a new LatLng on every event and the resizer is placed with a new LatLng once per applied frame,
+ * so the library path is not allocation free. This only covers the work the library adds on top.
+ */
+public class DragAllocationTest {
+
+    private static final int TICKS = 20000;
+
+    private com.sun.management.ThreadMXBean threadBean;
+
+    private final GeoDistance.Origin origin = new GeoDistance.Origin();
+    private GeofenceStore<Object> store;
+    private GeofenceGridIndex<Object> index;
+    private Object circle;
+    private int slot;
+    private final MarkerRouter<double[]> router = new MarkerRouter<>();
+    /** position reported by the dragged marker, reused like the map hands out a position per event */
+    private final double[] position = new double[2];
+
+    private static final int ROLE_CENTER = 0;
+    private static final int ROLE_RESIZER = 1;
+
+    private final MarkerRouter.Handler<Object, double[]> handler = new MarkerRouter.Handler<Object, double[]>() {
+        @Override
+        public void onMarkerEvent(Object owner, int role, MarkerRouter.Event event, double[] marker) {
+            if (role == ROLE_CENTER) {
+                store.setCenter(slot, marker[0], marker[1]);
+                index.put(owner, marker[0], marker[1], store.getRadius(slot));
+                return;
+            }
+            double latitude = store.getLatitude(slot);
+            double longitude = store.getLongitude(slot);
+            double radius = origin.set(latitude, longitude).distanceTo(marker[0], marker[1]);
+            if (radius < store.getMinRadius(slot) || radius > store.getMaxRadius(slot)) return;
+            store.setRadius(slot, radius);
+            index.put(owner, latitude, longitude, radius);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        store = new GeofenceStore<>();
+        index = new GeofenceGridIndex<>(0.01);
+        circle = new Object();
+        slot = store.allocate(1, 14.55, 121.02, 300, 50, 5000, store.internStyle(new Object()));
+        index.put(circle, 14.55, 121.02, 300);
+        router.put("m0", circle, ROLE_CENTER, handler);
+        router.put("m1", circle, ROLE_RESIZER, handler);
+
+        // neighbours sharing the cells the drag crosses
+        for (int i = 0; i < 50; i++) {
+            index.put(new Object(), 14.55 + i * 0.002, 121.02 + i * 0.002, 200);
+        }
+    }
+
+    @Test
+    public void centerDragCrossingCellsDoesNotAllocate() {
+        assertEquals(0, steadyStateAllocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                dragCenter(TICKS);
+            }
+        }));
+    }
+
+    @Test
+    public void resizeDragDoesNotAllocate() {
+        assertEquals(0, steadyStateAllocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                dragResizer(TICKS);
+            }
+        }));
+    }
+
+    @Test
+    public void dragKeepsIndexConsistent() {
+        dragCenter(TICKS + 7);
+        ArrayList<Object> found = new ArrayList<>();
+        index.containing(store.getLatitude(slot), store.getLongitude(slot), found);
+        assertTrue(found.contains(circle));
+        assertEquals(51, index.size());
+    }
+
+    /**
+     * Moves the center back and forth across several grid cells, like a center marker drag
+     */
+    private void dragCenter(int ticks) {
+        for (int t = 0; t < ticks; t++) {
+            double offset = (t % 200) * 0.0005;
+            position[0] = 14.55 + offset;
+            position[1] = 121.02 + offset;
+            router.dispatch("m0", MarkerRouter.Event.drag, position);
+        }
+    }
+
+    /**
+     * Moves the resizer east of the center, like a resizer marker drag
+     */
+    private void dragResizer(int ticks) {
+        for (int t = 0; t < ticks; t++) {
+            position[0] = store.getLatitude(slot);
+            position[1] = store.getLongitude(slot) + 0.001 + (t % 100) * 0.0002;
+            router.dispatch("m1", MarkerRouter.Event.drag, position);
+        }
+    }
+
+    /**
+     * Repeats the work until it stops allocating, recycled cell lists may still grow to the largest
+     * occupancy of the cells they are reused for during the first rounds
+     *
+     * @return bytes allocated by the last round
+     */
+    private long steadyStateAllocatedBytes(Runnable work) {
+        long allocated = allocatedBytes(work);
+        for (int round = 0; round < 20 && allocated > 0; round++) {
+            allocated = allocatedBytes(work);
+        }
+        return allocatedBytes(work);
+    }
+
+    /**
+     * @return bytes allocated by the current thread while running the work, minus the cost of measuring
+     */
+    private long allocatedBytes(Runnable work) {
+        long threadId = Thread.currentThread().getId();
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        long measured = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = measured - start;
+        work.run();
+        long end = threadBean.getThreadAllocatedBytes(threadId);
+        return Math.max(0, end - measured - overhead);
+    }
+}
@@ -0,0 +1,109 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeoDistanceTest {
+
+    private final Random random = new Random(9);
+
+    @Test
+    public void ellipsoidalMatchesReferenceDistances() {
+        // Flinders Peak to Buninyong, the worked example of Vincenty's inverse formula
+        assertEquals(54972.271, GeoDistance.ellipsoidal(dms(-37, 57, 3.72030), dms(144, 25, 29.52440),
+                dms(-37, 39, 10.15610), dms(143, 55, 35.38390)), 0.001);
+        // quarter meridian and one degree of the equator of WGS84
+        assertEquals(10001965.729, GeoDistance.ellipsoidal(0, 0, 90, 0), 0.001);
+        assertEquals(111319.491, GeoDistance.ellipsoidal(0, 0, 0, 1), 0.001);
+    }
+
+    @Test
+    public void identicalPointsAreZeroApart() {
+        assertEquals(0, GeoDistance.ellipsoidal(14.55, 121.02, 14.55, 121.02), 0);
+        assertEquals(0, GeoDistance.haversine(14.55, 121.02, 14.55, 121.02), 0);
+        assertEquals(0, GeoDistance.equirectangular(14.55, 121.02, 14.55, 121.02), 0);
+        // the pole has every longitude
+        assertEquals(0, GeoDistance.ellipsoidal(90, 0, 90, 45), 1e-6);
+    }
+
+    @Test
+    public void nearlyAntipodalPointsStayCloseToTheGeodesic() {
+        // Vincenty does not converge here, geodesic length from Karney, Algorithms for geodesics (2013)
+        assertEquals(19936288.579, GeoDistance.ellipsoidal(0, 0, 0.5, 179.5), 19936288.579 * 1e-4);
+        // the shortest path between antipodes on the equator runs over the poles, twice the quarter meridian
+        assertEquals(20003931.459, GeoDistance.ellipsoidal(0, 0, 0, 180), 20003931.459 * 1e-3);
+    }
+
+    @Test
+    public void haversineStaysWithinTheEllipsoidalBound() {
+        for (int i = 0; i < 20000; i++) {
+            double latitude1 = randomLatitude(80);
+            double longitude1 = randomLongitude();
+            double latitude2 = randomLatitude(80);
+            double longitude2 = randomLongitude();
+            double ellipsoidal = GeoDistance.ellipsoidal(latitude1, longitude1, latitude2, longitude2);
+            double haversine = GeoDistance.haversine(latitude1, longitude1, latitude2, longitude2);
+            assertEquals(ellipsoidal, haversine, ellipsoidal * 0.006);
+        }
+    }
+
+    @Test
+    public void equirectangularStaysCloseToHaversineAtDragDistances() {
+        for (int i = 0; i < 20000; i++) {
+            double latitude1 = randomLatitude(70);
+            double longitude1 = randomLongitude();
+            double meters = random.nextDouble() * 10000;
+            double bearing = random.nextDouble() * 2 * Math.PI;
+            double latitude2 = latitude1 + Math.toDegrees(meters * Math.cos(bearing) / MarkerAreasConstants.RADIUS_OF_EARTH_METERS);
+            double longitude2 = longitude1 + Math.toDegrees(meters * Math.sin(bearing) / MarkerAreasConstants.RADIUS_OF_EARTH_METERS)
+                    / Math.cos(Math.toRadians(latitude1));
+
+            double haversine = GeoDistance.haversine(latitude1, longitude1, latitude2, longitude2);
+            double equirectangular = GeoDistance.equirectangular(latitude1, longitude1, latitude2, longitude2);
+            assertEquals(haversine, equirectangular, haversine * 0.001 + 1e-6);
+        }
+    }
+
+    @Test
+    public void equirectangularWrapsTheAntimeridian() {
+        double across = GeoDistance.equirectangular(0, 179.999, 0, -179.999);
+        assertEquals(GeoDistance.haversine(0, 179.999, 0, -179.999), across, 0.001);
+        assertTrue(across < 300);
+    }
+
+    @Test
+    public void originMatchesEquirectangular() {
+        GeoDistance.Origin origin = new GeoDistance.Origin();
+        for (int i = 0; i < 1000; i++) {
+            double latitude = randomLatitude(85);
+            double longitude = randomLongitude();
+            origin.set(latitude, longitude);
+            for (int j = 0; j < 5; j++) {
+                // same latitude again reuses the cached cosine
+                if (j == 3) origin.set(latitude, longitude + 1);
+                double originLongitude = j >= 3 ? longitude + 1 : longitude;
+                double latitude2 = latitude + (random.nextDouble() - 0.5) * 0.2;
+                double longitude2 = longitude + (random.nextDouble() - 0.5) * 0.2;
+                assertEquals(GeoDistance.distance(GeoDistance.Precision.EQUIRECTANGULAR, latitude, originLongitude, latitude2, longitude2),
+                        origin.distanceTo(latitude2, longitude2), 0);
+            }
+        }
+    }
+
+    private static double dms(int degrees, int minutes, double seconds) {
+        double value = Math.abs(degrees) + minutes / 60.0 + seconds / 3600;
+        return degrees < 0 ? -value : value;
+    }
+
+    private double randomLatitude(double limit) {
+        return (random.nextDouble() * 2 - 1) * limit;
+    }
+
+    private double randomLongitude() {
+        return random.nextDouble() * 360 - 180;
+    }
+}
@@ -0,0 +1,198 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class GeofenceBatchEvaluatorTest {
+
+    private static final int DEVICES = 200;
+    private static final int FIXES = 40000;
+
+    /**
+     * Recorded fixes of random walking devices, interleaved in time order
+     */
+    private static final class Fixes implements GeofenceBatchEvaluator.FixSource {
+        final long[] deviceIds = new long[FIXES];
+        final long[] times = new long[FIXES];
+        final double[] latitudes = new double[FIXES];
+        final double[] longitudes = new double[FIXES];
+        final float[] accuracies = new float[FIXES];
+        int failAt = -1;
+        int cursor;
+
+        @Override
+        public boolean next(GeofenceBatchEvaluator.Fix fix) throws IOException {
+            if (cursor == failAt) throw new IOException("source failed at " + cursor);
+            if (cursor == FIXES) return false;
+            fix.set(deviceIds[cursor], times[cursor], latitudes[cursor], longitudes[cursor], accuracies[cursor]);
+            cursor++;
+            return true;
+        }
+    }
+
+    /**
+     * Transitions per device as "geofence transition time", in the order they were delivered
+     */
+    private static final class Recorder implements GeofenceBatchEvaluator.DeviceTransitionListener {
+        final Map<Long, List<String>> transitions = new HashMap<>();
+
+        @Override
+        public synchronized void onTransition(long deviceId, long geofenceId, GeofenceTransitionEngine.Transition transition,
+                                              long timeMillis, double latitude, double longitude) {
+            List<String> device = transitions.get(deviceId);
+            if (device == null) {
+                device = new ArrayList<>();
+                transitions.put(deviceId, device);
+            }
+            device.add(geofenceId + " " + transition + " " + timeMillis);
+        }
+    }
+
+    private GeofenceSet geofenceSet;
+    private Fixes fixes;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(3);
+        GeofenceSet.Builder builder = new GeofenceSet.Builder();
+        for (int i = 0; i < 300; i++) {
+            builder.add(i, 14.5 + random.nextDouble() * 0.2, 121 + random.nextDouble() * 0.2, 100 + random.nextDouble() * 900);
+        }
+        geofenceSet = builder.build();
+
+        double[] deviceLatitudes = new double[DEVICES];
+        double[] deviceLongitudes = new double[DEVICES];
+        for (int d = 0; d < DEVICES; d++) {
+            deviceLatitudes[d] = 14.5 + random.nextDouble() * 0.2;
+            deviceLongitudes[d] = 121 + random.nextDouble() * 0.2;
+        }
+        fixes = new Fixes();
+        for (int i = 0; i < FIXES; i++) {
+            int d = random.nextInt(DEVICES);
+            deviceLatitudes[d] += (random.nextDouble() - 0.5) * 0.002;
+            deviceLongitudes[d] += (random.nextDouble() - 0.5) * 0.002;
+            fixes.deviceIds[i] = d;
+            fixes.times[i] = i * 100L;
+            fixes.latitudes[i] = deviceLatitudes[d];
+            fixes.longitudes[i] = deviceLongitudes[d];
+            fixes.accuracies[i] = random.nextFloat() * 50;
+        }
+    }
+
+    @Test
+    public void parallelEvaluationMatchesSequentialEvaluation() throws IOException {
+        Map<Long, List<String>> expected = sequential(FIXES);
+        assertFalse(expected.isEmpty());
+
+        // chunk sizes that split the input unevenly, down to a single fix per chunk
+        int[] chunkSizes = {FIXES * 2, 4096, 777, 1};
+        for (int chunkSize : chunkSizes) {
+            for (int parallelism = 1; parallelism <= 8; parallelism *= 2) {
+                Recorder recorder = new Recorder();
+                fixes.cursor = 0;
+                long count = evaluator(recorder, parallelism, chunkSize).evaluate(fixes);
+
+                assertEquals(FIXES, count);
+                assertEquals("chunk size " + chunkSize + ", parallelism " + parallelism, expected, recorder.transitions);
+            }
+        }
+    }
+
+    @Test
+    public void sharedPoolIsLeftRunning() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            Recorder recorder = new Recorder();
+            GeofenceBatchEvaluator evaluator = new GeofenceBatchEvaluator.Builder(geofenceSet)
+                    .listener(recorder)
+                    .minHysteresisMeters(5)
+                    .dwellMillis(60000)
+                    .chunkSize(5000)
+                    .pool(pool)
+                    .build();
+            evaluator.evaluate(fixes);
+            assertFalse(pool.isShutdown());
+
+            // every evaluation starts with all devices outside
+            Recorder again = new Recorder();
+            fixes.cursor = 0;
+            new GeofenceBatchEvaluator.Builder(geofenceSet)
+                    .listener(again)
+                    .minHysteresisMeters(5)
+                    .dwellMillis(60000)
+                    .chunkSize(5000)
+                    .pool(pool)
+                    .build()
+                    .evaluate(fixes);
+            assertEquals(sequential(FIXES), recorder.transitions);
+            assertEquals(recorder.transitions, again.transitions);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void fixesReadBeforeASourceFailureAreEvaluated() throws IOException {
+        fixes.failAt = 12345;
+        Recorder recorder = new Recorder();
+        try {
+            evaluator(recorder, 4, 1000).evaluate(fixes);
+            fail("evaluate should rethrow the source failure");
+        } catch (IOException expected) {
+        }
+
+        Map<Long, List<String>> expected = sequential(12345);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, recorder.transitions);
+    }
+
+    private GeofenceBatchEvaluator evaluator(Recorder recorder, int parallelism, int chunkSize) {
+        return new GeofenceBatchEvaluator.Builder(geofenceSet)
+                .listener(recorder)
+                .minHysteresisMeters(5)
+                .dwellMillis(60000)
+                .parallelism(parallelism)
+                .chunkSize(chunkSize)
+                .build();
+    }
+
+    /**
+     * Reference: one engine per device fed in input order on the calling thread
+     */
+    private Map<Long, List<String>> sequential(int count) {
+        final Recorder recorder = new Recorder();
+        HashMap<Long, GeofenceTransitionEngine> engines = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            final long deviceId = fixes.deviceIds[i];
+            GeofenceTransitionEngine engine = engines.get(deviceId);
+            if (engine == null) {
+                engine = new GeofenceTransitionEngine.Builder(geofenceSet)
+                        .listener(new TransitionListener() {
+                            @Override
+                            public void onTransition(long geofenceId, GeofenceTransitionEngine.Transition transition,
+                                                     long timeMillis, double latitude, double longitude) {
+                                recorder.onTransition(deviceId, geofenceId, transition, timeMillis, latitude, longitude);
+                            }
+                        })
+                        .minHysteresisMeters(5)
+                        .dwellMillis(60000)
+                        .build();
+                engines.put(deviceId, engine);
+            }
+            engine.onLocation(fixes.times[i], fixes.latitudes[i], fixes.longitudes[i], fixes.accuracies[i]);
+        }
+        return recorder.transitions;
+    }
+}
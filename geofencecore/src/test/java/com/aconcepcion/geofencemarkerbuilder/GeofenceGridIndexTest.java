@@ -0,0 +1,164 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GeofenceGridIndexTest {
+
+    private static final class Circle {
+        final int id;
+        double latitude;
+        double longitude;
+        double radius;
+
+        Circle(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return "circle " + id;
+        }
+    }
+
+    private final Random random = new Random(11);
+    private final ArrayList<Circle> circles = new ArrayList<>();
+    private GeofenceGridIndex<Circle> index;
+
+    @Before
+    public void setUp() {
+        index = new GeofenceGridIndex<>(0.05);
+        for (int i = 0; i < 1500; i++) {
+            Circle circle = new Circle(i);
+            place(circle);
+            circles.add(circle);
+            index.put(circle, circle.latitude, circle.longitude, circle.radius);
+        }
+    }
+
+    @Test
+    public void containingMatchesBruteForce() {
+        for (int q = 0; q < 2000; q++) {
+            double latitude = 13.5 + random.nextDouble() * 2;
+            double longitude = 120.5 + random.nextDouble() * 2;
+
+            ArrayList<Circle> found = new ArrayList<>();
+            index.containing(latitude, longitude, found);
+
+            Set<Circle> expected = new HashSet<>();
+            for (Circle circle : circles) {
+                if (GeoDistance.haversine(circle.latitude, circle.longitude, latitude, longitude) <= circle.radius) {
+                    expected.add(circle);
+                }
+            }
+            assertEquals(expected.size(), found.size());
+            assertEquals(expected, new HashSet<>(found));
+        }
+    }
+
+    @Test
+    public void intersectingMatchesBruteForce() {
+        for (int q = 0; q < 500; q++) {
+            double south = 13.5 + random.nextDouble() * 2;
+            double west = 120.5 + random.nextDouble() * 2;
+            double north = south + random.nextDouble() * 0.5;
+            double east = west + random.nextDouble() * 0.5;
+
+            ArrayList<Circle> found = new ArrayList<>();
+            index.intersecting(south, west, north, east, found);
+
+            Set<Circle> expected = new HashSet<>();
+            for (Circle circle : circles) {
+                double nearestLatitude = Math.max(south, Math.min(north, circle.latitude));
+                double nearestLongitude = Math.max(west, Math.min(east, circle.longitude));
+                if (GeoDistance.haversine(circle.latitude, circle.longitude, nearestLatitude, nearestLongitude) <= circle.radius) {
+                    expected.add(circle);
+                }
+            }
+            assertEquals(expected.size(), found.size());
+            assertEquals(expected, new HashSet<>(found));
+        }
+    }
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        for (int q = 0; q < 500; q++) {
+            final double latitude = 13 + random.nextDouble() * 3;
+            final double longitude = 120 + random.nextDouble() * 3;
+            int k = 1 + random.nextInt(20);
+
+            ArrayList<Circle> found = new ArrayList<>();
+            index.nearest(latitude, longitude, k, found);
+
+            ArrayList<Circle> expected = new ArrayList<>(circles);
+            Collections.sort(expected, new Comparator<Circle>() {
+                @Override
+                public int compare(Circle a, Circle b) {
+                    return Double.compare(GeoDistance.haversine(latitude, longitude, a.latitude, a.longitude),
+                            GeoDistance.haversine(latitude, longitude, b.latitude, b.longitude));
+                }
+            });
+            assertEquals(expected.subList(0, k), found);
+        }
+    }
+
+    @Test
+    public void queriesMatchBruteForceAfterMovesAndRemovals() {
+        for (int i = 0; i < 3000; i++) {
+            Circle circle = circles.get(random.nextInt(circles.size()));
+            if (random.nextInt(10) == 0) {
+                assertTrue(index.remove(circle));
+                circles.remove(circle);
+                continue;
+            }
+            // mostly small drags, sometimes a jump across the area
+            if (random.nextBoolean()) {
+                circle.latitude += (random.nextDouble() - 0.5) * 0.1;
+                circle.longitude += (random.nextDouble() - 0.5) * 0.1;
+            } else {
+                place(circle);
+            }
+            index.put(circle, circle.latitude, circle.longitude, circle.radius);
+        }
+        assertEquals(circles.size(), index.size());
+
+        containingMatchesBruteForce();
+        intersectingMatchesBruteForce();
+        nearestMatchesBruteForce();
+    }
+
+    @Test
+    public void removedCirclesAreNotFound() {
+        Circle circle = circles.get(0);
+        assertTrue(index.remove(circle));
+        assertFalse(index.remove(circle));
+        assertFalse(index.contains(circle));
+
+        List<Circle> found = new ArrayList<>();
+        index.containing(circle.latitude, circle.longitude, found);
+        assertFalse(found.contains(circle));
+        index.nearest(circle.latitude, circle.longitude, circles.size(), found);
+        assertFalse(found.contains(circle));
+    }
+
+    /**
+     * Places the circle around Manila, with a few continent sized circles that skip the grid
+     */
+    private void place(Circle circle) {
+        circle.latitude = 13.5 + random.nextDouble() * 2;
+        circle.longitude = 120.5 + random.nextDouble() * 2;
+        circle.radius = random.nextInt(50) == 0 ? 50000 + random.nextDouble() * 200000 : 50 + random.nextDouble() * 3000;
+    }
+}
@@ -0,0 +1,96 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeofenceOverlapsTest {
+
+    @Test
+    public void findsOverlapStraddlingSouthernEdgeAbove34Degrees() {
+        GeofenceOverlaps overlaps = GeofenceOverlaps.find(new long[] {1, 2, 3},
+                new double[] {34.74, 34.80, 35.5}, new double[] {10, 10, 10}, new double[] {6000, 1000, 100}, 3);
+
+        assertEquals(1, overlaps.size());
+        assertEquals(1, overlaps.getFirstId(0));
+        assertEquals(2, overlaps.getSecondId(0));
+    }
+
+    @Test
+    public void matchesBruteForceAcrossLatitudes() {
+        Random random = new Random(7);
+        int count = 2000;
+        long[] ids = new long[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] radii = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+            latitudes[i] = 20 + random.nextDouble() * 40;
+            longitudes[i] = 10 + random.nextDouble() * 2;
+            radii[i] = 100 + random.nextDouble() * 5000;
+        }
+        // a cluster right around 34.75N, where the southern edges cross the old sort key limit
+        for (int i = 0; i < 200; i++) {
+            latitudes[i] = 34.7 + random.nextDouble() * 0.1;
+        }
+
+        assertMatchesBruteForce(ids, latitudes, longitudes, radii, count);
+    }
+
+    @Test
+    public void matchesBruteForceAcrossAntimeridianAndPoles() {
+        Random random = new Random(11);
+        int count = 1500;
+        long[] ids = new long[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] radii = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+            latitudes[i] = i % 3 == 0 ? 89.9 - random.nextDouble() * 0.2 : -90 + random.nextDouble() * 180;
+            longitudes[i] = 179.5 + random.nextDouble();
+            if (longitudes[i] > 180) longitudes[i] -= 360;
+            radii[i] = 100 + random.nextDouble() * 20000;
+        }
+
+        assertMatchesBruteForce(ids, latitudes, longitudes, radii, count);
+    }
+
+    @Test
+    public void adjacencyListsBothEndsOfEveryPair() {
+        GeofenceOverlaps overlaps = GeofenceOverlaps.find(new long[] {10, 20, 30},
+                new double[] {0, 0, 0}, new double[] {0, 0.001, 0.002}, new double[] {100, 100, 100}, 3);
+
+        assertEquals(2, overlaps.size());
+        assertEquals(1, overlaps.getNeighbourCount(0));
+        assertEquals(2, overlaps.getNeighbourCount(1));
+        assertEquals(1, overlaps.getNeighbourCount(2));
+        assertEquals(1, overlaps.getNeighbour(0, 0));
+    }
+
+    private static void assertMatchesBruteForce(long[] ids, double[] latitudes, double[] longitudes, double[] radii, int count) {
+        GeofenceOverlaps overlaps = GeofenceOverlaps.find(ids, latitudes, longitudes, radii, count);
+
+        Set<Long> found = new HashSet<>();
+        for (int p = 0; p < overlaps.size(); p++) {
+            assertTrue(overlaps.getFirst(p) < overlaps.getSecond(p));
+            found.add((long) overlaps.getFirst(p) * count + overlaps.getSecond(p));
+        }
+
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                double distance = GeoDistance.haversine(latitudes[i], longitudes[i], latitudes[j], longitudes[j]);
+                if (distance < radii[i] + radii[j]) expected.add((long) i * count + j);
+            }
+        }
+        assertEquals(expected, found);
+        assertEquals(expected.size(), overlaps.size());
+    }
+}
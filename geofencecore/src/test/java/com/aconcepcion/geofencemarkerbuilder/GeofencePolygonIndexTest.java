@@ -0,0 +1,107 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GeofencePolygonIndexTest {
+
+    private final Random random = new Random(5);
+
+    @Test
+    public void starPolygonsMatchRayCasting() {
+        for (int p = 0; p < 50; p++) {
+            int n = 3 + random.nextInt(200);
+            double[] angles = new double[n];
+            for (int i = 0; i < n; i++) {
+                angles[i] = random.nextDouble() * 2 * Math.PI;
+            }
+            Arrays.sort(angles);
+
+            double[] latitudes = new double[n];
+            double[] longitudes = new double[n];
+            for (int i = 0; i < n; i++) {
+                double radius = 0.002 + random.nextDouble() * 0.01;
+                latitudes[i] = 14.55 + radius * Math.sin(angles[i]);
+                longitudes[i] = 121.02 + radius * Math.cos(angles[i]);
+            }
+            assertMatchesRayCasting(latitudes, longitudes, 2000);
+        }
+    }
+
+    @Test
+    public void combWithSharedVertexLatitudesMatchesRayCasting() {
+        // teeth pointing north, every tooth shares its base and tip latitudes with the others
+        int teeth = 20;
+        double[] latitudes = new double[teeth * 4 + 2];
+        double[] longitudes = new double[latitudes.length];
+        int v = 0;
+        for (int t = 0; t < teeth; t++) {
+            latitudes[v] = 1;
+            longitudes[v++] = t;
+            latitudes[v] = 3;
+            longitudes[v++] = t;
+            latitudes[v] = 3;
+            longitudes[v++] = t + 0.5;
+            latitudes[v] = 1;
+            longitudes[v++] = t + 0.5;
+        }
+        latitudes[v] = 0;
+        longitudes[v++] = teeth;
+        latitudes[v] = 0;
+        longitudes[v] = 0;
+
+        assertMatchesRayCasting(latitudes, longitudes, 20000);
+
+        GeofencePolygonIndex index = new GeofencePolygonIndex(latitudes, longitudes);
+        assertTrue(index.contains(2, 0.25));
+        assertFalse(index.contains(2, 0.75));
+        assertTrue(index.contains(0.5, 0.75));
+    }
+
+    @Test
+    public void pointsOutsideTheBoundingBoxAreOutside() {
+        GeofencePolygonIndex index = new GeofencePolygonIndex(new double[] {0, 0, 1, 1}, new double[] {0, 1, 1, 0});
+        assertTrue(index.contains(0.5, 0.5));
+        assertFalse(index.contains(-0.5, 0.5));
+        assertFalse(index.contains(1.5, 0.5));
+        assertFalse(index.contains(0.5, -0.5));
+        assertFalse(index.contains(0.5, 1.5));
+        assertEquals(4, index.size());
+    }
+
+    private void assertMatchesRayCasting(double[] latitudes, double[] longitudes, int points) {
+        GeofencePolygonIndex index = new GeofencePolygonIndex(latitudes, longitudes);
+        double south = index.getSouth();
+        double west = index.getWest();
+        double latitudeSpan = index.getNorth() - south;
+        double longitudeSpan = index.getEast() - west;
+
+        for (int q = 0; q < points; q++) {
+            // a margin around the bounding box also exercises the early rejection
+            double latitude = south - latitudeSpan * 0.1 + random.nextDouble() * latitudeSpan * 1.2;
+            double longitude = west - longitudeSpan * 0.1 + random.nextDouble() * longitudeSpan * 1.2;
+            assertEquals(latitude + ", " + longitude, rayCasting(latitudes, longitudes, latitude, longitude),
+                    index.contains(latitude, longitude));
+        }
+    }
+
+    /**
+     * Crossing number of a ray cast east from the point
+     */
+    private static boolean rayCasting(double[] latitudes, double[] longitudes, double latitude, double longitude) {
+        boolean isInside = false;
+        for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+            if ((latitudes[i] > latitude) != (latitudes[j] > latitude)) {
+                double crossing = longitudes[j] + (latitude - latitudes[j]) / (latitudes[i] - latitudes[j]) * (longitudes[i] - longitudes[j]);
+                if (longitude < crossing) isInside = !isInside;
+            }
+        }
+        return isInside;
+    }
+}
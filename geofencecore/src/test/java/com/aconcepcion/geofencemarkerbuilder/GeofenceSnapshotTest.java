@@ -0,0 +1,86 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GeofenceSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackWrittenRecords() throws IOException {
+        File target = new File(folder.getRoot(), "geofences.bin");
+        GeofenceSnapshot.Writer writer = new GeofenceSnapshot.Writer(target);
+        for (int i = 0; i < 3000; i++) {
+            writer.add(i, 14 + i * 1e-4, 121 - i * 1e-4, 100 + i, 50, 5000, 0x460000ff + i, 0xffff0000, 4f);
+        }
+        writer.close();
+
+        GeofenceSnapshot snapshot = GeofenceSnapshot.open(target);
+        try {
+            assertEquals(3000, snapshot.size());
+            assertEquals(2999, snapshot.getId(2999));
+            assertEquals(14 + 2999 * 1e-4, snapshot.getLatitude(2999), 0);
+            assertEquals(121 - 2999 * 1e-4, snapshot.getLongitude(2999), 0);
+            assertEquals(3099, snapshot.getRadius(2999), 0);
+            assertEquals(50, snapshot.getMinRadius(2999));
+            assertEquals(5000, snapshot.getMaxRadius(2999));
+            assertEquals(0x460000ff + 2999, snapshot.getFillColor(2999));
+            assertEquals(0xffff0000, snapshot.getStrokeColor(2999));
+            assertEquals(4f, snapshot.getStrokeWidth(2999), 0);
+        } finally {
+            snapshot.close();
+        }
+        assertFalse(new File(target.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void failedWriteOnCloseDeletesTemporaryFile() throws IOException {
+        File target = new File(folder.getRoot(), "geofences.bin");
+        File temp = new File(target.getPath() + ".tmp");
+
+        GeofenceSnapshot.Writer writer = new GeofenceSnapshot.Writer(target);
+        writer.add(1, 14, 121, 100, -1, -1, 0, 0, 4f);
+        // an interrupted thread closes the channel on the next write
+        Thread.currentThread().interrupt();
+        try {
+            writer.close();
+            fail("close should fail");
+        } catch (IOException expected) {
+        } finally {
+            Thread.interrupted();
+        }
+        assertFalse(temp.exists());
+        assertFalse(target.exists());
+
+        writer.abort();
+        assertFalse(temp.exists());
+    }
+
+    @Test
+    public void failedReplaceLeavesTargetUntouched() throws IOException {
+        // a non empty directory can not be replaced by the snapshot
+        File target = folder.newFolder("geofences.bin");
+        assertTrue(new File(target, "keep").createNewFile());
+
+        GeofenceSnapshot.Writer writer = new GeofenceSnapshot.Writer(target);
+        writer.add(1, 14, 121, 100, -1, -1, 0, 0, 4f);
+        try {
+            writer.close();
+            fail("close should fail");
+        } catch (IOException expected) {
+        }
+        assertFalse(new File(target.getPath() + ".tmp").exists());
+        assertTrue(new File(target, "keep").exists());
+    }
+}
@@ -0,0 +1,75 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class GeofenceStoreTest {
+
+    private final GeofenceStore<Integer> store = new GeofenceStore<>();
+
+    @Test
+    public void recoloringReusesUnreferencedStyles() {
+        int slot = store.allocate(1, 0, 0, 100, 50, 1000, store.internStyle(0));
+        int other = store.allocate(2, 0, 0, 100, 50, 1000, store.internStyle(0));
+
+        // like GeofenceCircle.setFillColor with a new color on every call
+        for (int color = 1; color < 1000; color++) {
+            store.setStyleIndex(slot, store.internStyle(color));
+        }
+
+        // the new color is interned while the previous one is still referenced
+        assertEquals(3, store.styleCount());
+        assertEquals(Integer.valueOf(999), store.getStyle(store.getStyleIndex(slot)));
+        assertEquals(Integer.valueOf(0), store.getStyle(store.getStyleIndex(other)));
+        assertEquals(1, store.getStyleReferences(store.getStyleIndex(other)));
+    }
+
+    @Test
+    public void sharedStylesAreKeptUntilTheLastSlotIsFreed() {
+        int style = store.internStyle(7);
+        int first = store.allocate(1, 0, 0, 100, 50, 1000, style);
+        int second = store.allocate(2, 0, 0, 100, 50, 1000, style);
+        assertEquals(2, store.getStyleReferences(style));
+
+        store.free(first);
+        assertEquals(style, store.indexOfStyle(7));
+        assertNotEquals(style, store.internStyle(8));
+
+        store.free(second);
+        assertEquals(-1, store.indexOfStyle(7));
+        int reused = store.allocate(3, 0, 0, 100, 50, 1000, store.internStyle(9));
+        assertEquals(2, store.styleCount());
+        assertEquals(Integer.valueOf(9), store.getStyle(store.getStyleIndex(reused)));
+        assertEquals(-1, store.indexOfStyle(7));
+    }
+
+    @Test
+    public void styleInternedAgainBeforeReuseKeepsItsEntry() {
+        int style = store.internStyle(7);
+        int slot = store.allocate(1, 0, 0, 100, 50, 1000, style);
+        store.setStyleIndex(slot, store.internStyle(8));
+        store.setStyleIndex(slot, store.internStyle(7));
+
+        assertEquals(style, store.getStyleIndex(slot));
+        assertEquals(2, store.styleCount());
+        int other = store.allocate(2, 0, 0, 100, 50, 1000, store.internStyle(9));
+        assertEquals(Integer.valueOf(7), store.getStyle(store.getStyleIndex(slot)));
+        assertEquals(Integer.valueOf(9), store.getStyle(store.getStyleIndex(other)));
+        assertEquals(2, store.styleCount());
+    }
+
+    @Test
+    public void clearEmptiesTheStyleTable() {
+        store.allocate(1, 0, 0, 100, 50, 1000, store.internStyle(7));
+        store.clear();
+        assertEquals(0, store.styleCount());
+        assertEquals(-1, store.indexOfStyle(7));
+
+        int slot = store.allocate(1, 0, 0, 100, 50, 1000, store.internStyle(8));
+        store.setStyleIndex(slot, store.internStyle(9));
+        store.setStyleIndex(slot, store.internStyle(10));
+        assertEquals(2, store.styleCount());
+    }
+}
@@ -0,0 +1,162 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GeofenceTransitionEngineTest {
+
+    /**
+     * Records transitions as "id transition time"
+     */
+    private static final class Recorder implements TransitionListener {
+        final List<String> transitions = new ArrayList<>();
+
+        @Override
+        public void onTransition(long geofenceId, GeofenceTransitionEngine.Transition transition, long timeMillis,
+                                 double latitude, double longitude) {
+            transitions.add(geofenceId + " " + transition + " " + timeMillis);
+        }
+    }
+
+    private final Recorder recorder = new Recorder();
+
+    @Test
+    public void entersAndExitsOutsideTheHysteresisBand() {
+        GeofenceTransitionEngine engine = engine(new GeofenceSet.Builder().add(1, 0, 0, 100).build(), -1);
+
+        engine.onLocation(0, north(97), 0, 0);
+        assertTrue(recorder.transitions.isEmpty());
+        engine.onLocation(1, north(94), 0, 0);
+        assertTrue(engine.isInside(1));
+
+        engine.onLocation(2, north(103), 0, 0);
+        assertTrue(engine.isInside(1));
+        engine.onLocation(3, north(106), 0, 0);
+        assertFalse(engine.isInside(1));
+
+        assertEquals(Arrays.asList("1 enter 1", "1 exit 3"), recorder.transitions);
+    }
+
+    @Test
+    public void inaccurateFixesWidenTheBand() {
+        GeofenceTransitionEngine engine = engine(new GeofenceSet.Builder().add(1, 0, 0, 100).build(), -1);
+
+        engine.onLocation(0, north(80), 0, 30);
+        assertFalse(engine.isInside(1));
+        engine.onLocation(1, north(65), 0, 30);
+        assertTrue(engine.isInside(1));
+        engine.onLocation(2, north(125), 0, 30);
+        assertTrue(engine.isInside(1));
+        engine.onLocation(3, north(135), 0, 30);
+        assertFalse(engine.isInside(1));
+    }
+
+    @Test
+    public void bandIsCappedByTheCandidateMargin() {
+        GeofenceSet set = new GeofenceSet.Builder().add(1, 0, 0, 1000).candidateMarginMeters(200).build();
+        GeofenceTransitionEngine engine = engine(set, -1);
+
+        engine.onLocation(0, north(790), 0, 5000);
+        assertTrue(engine.isInside(1));
+        engine.onLocation(1, north(1210), 0, 5000);
+        assertFalse(engine.isInside(1));
+    }
+
+    @Test
+    public void geofenceSmallerThanTheBandCanBeEntered() {
+        GeofenceTransitionEngine engine = engine(new GeofenceSet.Builder().add(1, 0, 0, 4).build(), -1);
+
+        engine.onLocation(0, north(3), 0, 20);
+        assertFalse(engine.isInside(1));
+        engine.onLocation(1, north(1.5), 0, 20);
+        assertTrue(engine.isInside(1));
+        engine.onLocation(2, north(20), 0, 20);
+        assertTrue(engine.isInside(1));
+        engine.onLocation(3, north(25), 0, 20);
+        assertFalse(engine.isInside(1));
+    }
+
+    @Test
+    public void dwellIsReportedOnceAfterTheDwellTime() {
+        GeofenceTransitionEngine engine = engine(new GeofenceSet.Builder().add(1, 0, 0, 100).build(), 1000);
+
+        engine.onLocation(0, 0, 0, 0);
+        engine.onLocation(999, 0, 0, 0);
+        engine.onLocation(1000, 0, 0, 0);
+        engine.onLocation(5000, 0, 0, 0);
+
+        assertEquals(Arrays.asList("1 enter 0", "1 dwell 1000"), recorder.transitions);
+    }
+
+    @Test
+    public void zeroDwellTimeReportsDwellWithTheEnter() {
+        GeofenceTransitionEngine engine = engine(new GeofenceSet.Builder().add(1, 0, 0, 100).build(), 0);
+
+        engine.onLocation(0, 0, 0, 0);
+        engine.onLocation(1, 0, 0, 0);
+
+        assertEquals(Arrays.asList("1 enter 0", "1 dwell 0"), recorder.transitions);
+    }
+
+    @Test
+    public void olderFixesAreIgnored() {
+        GeofenceTransitionEngine engine = engine(new GeofenceSet.Builder().add(1, 0, 0, 100).build(), -1);
+
+        engine.onLocation(10, 0, 0, 0);
+        engine.onLocation(5, north(500), 0, 0);
+        assertTrue(engine.isInside(1));
+        assertEquals(Arrays.asList("1 enter 10"), recorder.transitions);
+    }
+
+    @Test
+    public void overlappingGeofencesAreTrackedIndependently() {
+        GeofenceSet set = new GeofenceSet.Builder()
+                .add(1, 0, 0, 100)
+                .add(2, north(150), 0, 100)
+                .add(3, 1, 1, 100)
+                .build();
+        GeofenceTransitionEngine engine = engine(set, -1);
+
+        engine.onLocation(0, north(75), 0, 0);
+        assertEquals(2, engine.getInsideCount());
+        engine.onLocation(1, north(200), 0, 0);
+        assertEquals(1, engine.getInsideCount());
+        assertTrue(engine.isInside(2));
+
+        assertEquals(Arrays.asList("1 enter 0", "2 enter 0", "1 exit 1"), recorder.transitions);
+    }
+
+    @Test
+    public void resetForgetsInsideStateWithoutExits() {
+        GeofenceTransitionEngine engine = engine(new GeofenceSet.Builder().add(1, 0, 0, 100).build(), -1);
+
+        engine.onLocation(10, 0, 0, 0);
+        engine.reset();
+        assertEquals(0, engine.getInsideCount());
+        engine.onLocation(0, 0, 0, 0);
+
+        assertEquals(Arrays.asList("1 enter 10", "1 enter 0"), recorder.transitions);
+    }
+
+    private GeofenceTransitionEngine engine(GeofenceSet set, long dwellMillis) {
+        return new GeofenceTransitionEngine.Builder(set)
+                .listener(recorder)
+                .minHysteresisMeters(5)
+                .dwellMillis(dwellMillis)
+                .build();
+    }
+
+    /**
+     * @return latitude the given great-circle distance north of the equator
+     */
+    private static double north(double meters) {
+        return Math.toDegrees(meters / MarkerAreasConstants.RADIUS_OF_EARTH_METERS);
+    }
+}
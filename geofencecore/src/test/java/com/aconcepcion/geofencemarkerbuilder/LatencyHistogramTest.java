@@ -0,0 +1,103 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void smallValuesHaveTheirOwnBucket() {
+        for (int value = 0; value < 4; value++) {
+            assertEquals(value, LatencyHistogram.bucketOf(value));
+            assertEquals(value, LatencyHistogram.upperBoundOf(value));
+        }
+        assertEquals(4, LatencyHistogram.bucketOf(4));
+        assertEquals(4, LatencyHistogram.upperBoundOf(4));
+    }
+
+    @Test
+    public void bucketsAreContiguousUpToLongMaxValue() {
+        int last = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(last));
+
+        for (int bucket = 0; bucket <= last; bucket++) {
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper));
+            if (bucket < last) assertEquals(bucket + 1, LatencyHistogram.bucketOf(upper + 1));
+        }
+    }
+
+    @Test
+    public void powersOfTwoStartABucket() {
+        for (int power = 2; power < 63; power++) {
+            long value = 1L << power;
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertEquals(value - 1, LatencyHistogram.upperBoundOf(bucket - 1));
+            assertEquals(bucket - 1, LatencyHistogram.bucketOf(value - 1));
+            // four sub-buckets per power of two
+            if (power < 62) assertEquals(bucket + 4, LatencyHistogram.bucketOf(value << 1));
+        }
+    }
+
+    @Test
+    public void upperBoundIsWithinAQuarterOfTheValue() {
+        Random random = new Random(13);
+        for (int i = 0; i < 100000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value));
+            assertTrue(value + " -> " + upper, upper >= value);
+            assertTrue(value + " -> " + upper, upper - value <= value / 4);
+        }
+    }
+
+    @Test
+    public void percentilesMatchASortedReference() {
+        Random random = new Random(17);
+        long[] values = new long[10007];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            // log-uniform between 1ns and ~1s
+            values[i] = (long) Math.pow(2, random.nextDouble() * 30);
+            histogram.record(values[i]);
+            sum += values[i];
+        }
+        Arrays.sort(values);
+        long max = values[values.length - 1];
+
+        double[] percentiles = {0, 0.1, 1, 25, 50, 90, 99, 99.9, 100};
+        for (double percentile : percentiles) {
+            long rank = Math.max(1, (long) Math.ceil(values.length * percentile / 100));
+            long reference = values[(int) rank - 1];
+            long expected = Math.min(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(reference)), max);
+            assertEquals("p" + percentile, expected, histogram.getPercentileNanos(percentile));
+        }
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(max, histogram.getMaxNanos());
+        assertEquals(max, histogram.getPercentileNanos(100));
+        assertEquals(sum / values.length, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void emptyAndResetHistogramsReportZero() {
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(0, histogram.getMeanNanos());
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(99));
+    }
+}
@@ -0,0 +1,74 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MarkerRouterTest {
+
+    /**
+     * Records events as "owner role event marker"
+     */
+    private static final class Recorder implements MarkerRouter.Handler<String, String> {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onMarkerEvent(String owner, int role, MarkerRouter.Event event, String marker) {
+            events.add(owner + " " + role + " " + event + " " + marker);
+        }
+    }
+
+    private final MarkerRouter<String> router = new MarkerRouter<>();
+    private final Recorder circles = new Recorder();
+    private final Recorder polygons = new Recorder();
+
+    @Test
+    public void eventsReachTheHandlerOfTheOwner() {
+        router.put("m0", "circle", 0, circles);
+        router.put("m1", "circle", 1, circles);
+        router.put("m2", "polygon", 2, polygons);
+
+        assertTrue(router.dispatch("m1", MarkerRouter.Event.dragStart, "a"));
+        assertTrue(router.dispatch("m2", MarkerRouter.Event.drag, "b"));
+        assertTrue(router.dispatch("m0", MarkerRouter.Event.click, "c"));
+
+        assertEquals(Arrays.asList("circle 1 dragStart a", "circle 0 click c"), circles.events);
+        assertEquals(Arrays.asList("polygon 2 drag b"), polygons.events);
+        assertSame("polygon", router.getOwner("m2"));
+        assertEquals(3, router.size());
+    }
+
+    @Test
+    public void unknownAndRemovedMarkersAreNotDispatched() {
+        router.put("m0", "circle", 0, circles);
+        assertTrue(router.remove("m0"));
+        assertFalse(router.remove("m0"));
+
+        assertFalse(router.dispatch("m0", MarkerRouter.Event.dragEnd, "a"));
+        assertFalse(router.dispatch("m9", MarkerRouter.Event.dragEnd, "a"));
+        assertNull(router.getOwner("m0"));
+        assertTrue(circles.events.isEmpty());
+    }
+
+    @Test
+    public void putReplacesTheRouteOfAMarker() {
+        router.put("m0", "circle", 0, circles);
+        router.put("m0", "polygon", 3, polygons);
+
+        router.dispatch("m0", MarkerRouter.Event.drag, "a");
+        assertTrue(circles.events.isEmpty());
+        assertEquals(Arrays.asList("polygon 3 drag a"), polygons.events);
+        assertEquals(1, router.size());
+
+        router.clear();
+        assertEquals(0, router.size());
+    }
+}
@@ -0,0 +1,105 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Spreads the creation of many saved circles over several frames
+ *
+ * Every frame creates circles until the frame budget is used up (at least one per frame),
+ * so restoring thousands of geofences keeps the UI responsive. Batches are plotted in the
+ * order they were queued.
+ *
+ * Must be used from the main thread.
+ */
+class BatchPlotter implements FramePoster.Callback {
+
+    private static class Batch {
+        final List<GeofenceSpec> specs;
+        final List<GeofenceCircle> circles;
+        final boolean notifyEachCircle;
+        final PlotProgressListener plotProgressListener;
+        int cursor;
+
+        Batch(Collection<GeofenceSpec> specs, boolean notifyEachCircle, PlotProgressListener plotProgressListener) {
+            this.specs = new ArrayList<>(specs);
+            this.circles = new ArrayList<>(specs.size());
+            this.notifyEachCircle = notifyEachCircle;
+            this.plotProgressListener = plotProgressListener;
+        }
+    }
+
+    private final MarkerBuilderManagerV2 manager;
+    private final long frameBudgetNanos;
+    private final FramePoster framePoster = new FramePoster(this);
+    private final ArrayList<Batch> batches = new ArrayList<>(1);
+
+    BatchPlotter(MarkerBuilderManagerV2 manager, long frameBudgetNanos) {
+        this.manager = manager;
+        this.frameBudgetNanos = frameBudgetNanos;
+    }
+
+    void enqueue(Collection<GeofenceSpec> specs, boolean notifyEachCircle, PlotProgressListener plotProgressListener) {
+        if (specs.isEmpty()) {
+            if (plotProgressListener != null) plotProgressListener.onPlotComplete(new ArrayList<GeofenceCircle>(0));
+            return;
+        }
+        batches.add(new Batch(specs, notifyEachCircle, plotProgressListener));
+        framePoster.post();
+    }
+
+    /**
+     * Drops every batch not yet fully plotted, circles already on the map stay
+     */
+    void cancel() {
+        batches.clear();
+        framePoster.cancel();
+    }
+
+    boolean isPlotting() {
+        return !batches.isEmpty();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        long begin = manager.getMetrics().begin(GeofenceMetrics.Timer.plotFrame);
+        long start = System.nanoTime();
+
+        do {
+            if (batches.isEmpty()) break;
+
+            Batch batch = batches.get(0);
+            GeofenceSpec spec = batch.specs.get(batch.cursor++);
+            GeofenceCircle circle = manager.addSavedPoint(spec.getCenter(), spec.getRadius(), spec.getCircleId(), spec.getFillColor());
+            batch.circles.add(circle);
+
+            boolean isBatchDone = batch.cursor == batch.specs.size();
+            boolean isFrameDone = System.nanoTime() - start >= frameBudgetNanos;
+
+            // dequeued before calling listeners, they may cancel plotting or queue more batches
+            if (isBatchDone) batches.remove(0);
+
+            if (batch.notifyEachCircle) manager.notifyInitCreateCircle(circle);
+            boolean isCancelled = !isBatchDone && !isQueued(batch);
+
+            if ((isBatchDone || isFrameDone) && !isCancelled) {
+                if (batch.plotProgressListener != null) batch.plotProgressListener.onPlotProgress(batch.cursor, batch.specs.size());
+            }
+            if (isBatchDone) {
+                if (batch.plotProgressListener != null) batch.plotProgressListener.onPlotComplete(batch.circles);
+            }
+            if (isFrameDone) break;
+        } while (true);
+
+        manager.getMetrics().end(GeofenceMetrics.Timer.plotFrame, begin);
+        if (!batches.isEmpty()) framePoster.post();
+    }
+
+    /**
+     * @return false once the batch was dropped by {@link #cancel()}
+     */
+    private boolean isQueued(Batch batch) {
+        return !batches.isEmpty() && batches.get(0) == batch;
+    }
+}
@@ -0,0 +1,72 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.os.SystemClock;
+
+import com.google.android.gms.maps.model.LatLng;
+
+/**
+ * Immutable circle gesture event published by {@link MarkerBuilderManagerV2#circleEvents()}
+ * and {@link MarkerBuilderManagerV2#dragEvents(long, java.util.concurrent.TimeUnit)}
+ *
+ * Center and radius are captured when the event happens, so events can be consumed on any thread.
+ * The circle itself must only be used on the main thread.
+ */
+public class CircleEvent {
+
+    public static enum Type {initCreate, create, click, moveStart, move, moveEnd, resizeStart, resize, resizeEnd, minRadius, maxRadius}
+
+    private final Type type;
+    private final GeofenceCircle circle;
+    private final long circleId;
+    private final LatLng center;
+    private final double radius;
+    private final long timeMillis;
+
+    CircleEvent(Type type, GeofenceCircle circle) {
+        this.type = type;
+        this.circle = circle;
+        this.circleId = circle != null ? circle.getCircleId() : -1;
+        this.center = circle != null ? circle.getCenter() : null;
+        this.radius = circle != null ? circle.getRadius() : 0;
+        this.timeMillis = SystemClock.elapsedRealtime();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public GeofenceCircle getCircle() {
+        return circle;
+    }
+
+    public long getCircleId() {
+        return circleId;
+    }
+
+    public LatLng getCenter() {
+        return center;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * @return {@link SystemClock#elapsedRealtime()} when the event happened
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return true for the per drag tick move and resize events
+     */
+    public boolean isDragTick() {
+        return type == Type.move || type == Type.resize;
+    }
+
+    @Override
+    public String toString() {
+        return type + " id: " + circleId + " center: " + center + " radius: " + radius;
+    }
+}
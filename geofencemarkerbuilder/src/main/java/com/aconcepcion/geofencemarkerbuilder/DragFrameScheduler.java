@@ -0,0 +1,58 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.ArrayList;
+
+/**
+ * Coalesces circle geometry updates produced by drag events into one map update per frame
+ *
+ * Drag callbacks can arrive faster than the display refreshes and every circle or marker
+ * update is a round-trip into the map renderer. Circles only record their latest center and
+ * radius on each event and register here; the pending geometry is pushed to the map once on
+ * the next vsync.
+ *
+ * Must be used from the main thread.
+ */
+class DragFrameScheduler implements FramePoster.Callback {
+
+    private final FramePoster framePoster = new FramePoster(this);
+    private final ArrayList<GeofenceCircle> pendingCircles = new ArrayList<>();
+
+    /**
+     * Marks the circle as having pending geometry, applied on the next frame
+     */
+    void schedule(GeofenceCircle geofenceCircle) {
+        if (geofenceCircle.isFramePending()) return;
+        geofenceCircle.setFramePending(true);
+        pendingCircles.add(geofenceCircle);
+        framePoster.post();
+    }
+
+    /**
+     * Applies the pending geometry of the circle right away, e.g. when the gesture ends
+     */
+    void flush(GeofenceCircle geofenceCircle) {
+        if (!geofenceCircle.isFramePending()) return;
+        cancel(geofenceCircle);
+        geofenceCircle.applyPendingGeometry();
+    }
+
+    /**
+     * Drops the pending geometry of the circle, e.g. when it is removed from the map
+     */
+    void cancel(GeofenceCircle geofenceCircle) {
+        if (!geofenceCircle.isFramePending()) return;
+        geofenceCircle.setFramePending(false);
+        pendingCircles.remove(geofenceCircle);
+        if (pendingCircles.isEmpty()) framePoster.cancel();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        for (int i = 0; i < pendingCircles.size(); i++) {
+            GeofenceCircle geofenceCircle = pendingCircles.get(i);
+            geofenceCircle.setFramePending(false);
+            geofenceCircle.applyPendingGeometry();
+        }
+        pendingCircles.clear();
+    }
+}
@@ -0,0 +1,93 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Runs a callback once on the next display frame
+ *
+ * Uses {@link Choreographer} where available (API 16+) and falls back to a main thread
+ * {@link Handler} posting at roughly the display refresh interval on older platforms.
+ * Posting again before the frame arrives is a no-op, so callers can post on every event.
+ *
+ * Must be used from the main thread.
+ */
+class FramePoster {
+
+    private static final long FALLBACK_FRAME_DELAY_MILLIS = 16;
+
+    interface Callback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    private final Callback callback;
+    private final Choreographer.FrameCallback frameCallback;
+    private final Runnable fallbackRunnable;
+    private final Handler handler;
+    private boolean isPosted;
+
+    FramePoster(Callback callback) {
+        this.callback = callback;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            this.frameCallback = createFrameCallback();
+            this.fallbackRunnable = null;
+            this.handler = null;
+        } else {
+            this.frameCallback = null;
+            this.fallbackRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    dispatch(System.nanoTime());
+                }
+            };
+            this.handler = new Handler(Looper.getMainLooper());
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Choreographer.FrameCallback createFrameCallback() {
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                dispatch(frameTimeNanos);
+            }
+        };
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void post() {
+        if (isPosted) return;
+        isPosted = true;
+
+        if (frameCallback != null) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        } else {
+            handler.postDelayed(fallbackRunnable, FALLBACK_FRAME_DELAY_MILLIS);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void cancel() {
+        if (!isPosted) return;
+        isPosted = false;
+
+        if (frameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+        } else {
+            handler.removeCallbacks(fallbackRunnable);
+        }
+    }
+
+    boolean isPosted() {
+        return isPosted;
+    }
+
+    private void dispatch(long frameTimeNanos) {
+        isPosted = false;
+        callback.doFrame(frameTimeNanos);
+    }
+}
@@ -3,18 +3,17 @@ package com.aconcepcion.geofencemarkerbuilder;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
-import android.support.v4.content.res.ResourcesCompat;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.Circle;
 import com.google.android.gms.maps.model.CircleOptions;
@@ -22,6 +21,8 @@ import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 
+import java.util.concurrent.Executor;
+
 /**
  * Created by andrewconcepcion on 4/20/15.
  */
@@ -32,35 +33,53 @@ public class GeofenceCircle {
     public static final String DATA_POINT_WRAPPER = "dataPoint";
 
     public long getCircleId() {
-        return circleId;
+        return store.getId(slot);
     }
 
     public static enum MarkerMoveResult {moved, radiusChange, minRadius, maxRadius, none;};
     public static enum MarkerType {move, resize, none;}
 
+    /**
+     * Receives circles built with {@link Builder#buildAsync(Executor, OnCircleBuiltListener)}
+     */
+    public interface OnCircleBuiltListener {
+        void onCircleBuilt(GeofenceCircle geofenceCircle);
+
+        /**
+         * Called on the main thread instead of {@link #onCircleBuilt(GeofenceCircle)} when preparing the circle failed,
+         * nothing was added to the map
+         */
+        void onCircleBuildFailed(Throwable error);
+    }
 
-    private static Bitmap centerBitmapCache;
-
-    private Context context;
-    private GoogleMap map;
-    private boolean isEnabled;
-    private LatLng center;
-    private double radius;
-    private long circleId;
-    private float strokeWidth;
-    private int strokeColor;
-    private int fillColor;
-    private int minRadius;
-    private int maxRadius;
-    private int centerIcon;
-    private Bitmap centerBitmap;
-    private int resizerIcon;
-    private float centerOffsetHorizontal;
-    private float centerOffsetVertical;
+
+    /**
+     * Geometry, ids and style live in the store, the circle only holds its slot and the map objects.
+     * A removed circle keeps its values in a private single slot store.
+     */
+    private GeofenceStore<GeofenceStyle> store;
+    private int slot;
+    private boolean isRemoved;
 
     private Marker centerMarker;
     private Marker resizerMarker;
     private Circle circle;
+    private Marker dotMarker;
+    private LevelOfDetail.Tier tier = LevelOfDetail.Tier.full;
+
+    /**
+     * Equirectangular distance kernel anchored at the center, used on the drag path.
+     * Drag events are delivered on the main thread so one kernel is shared by all circles.
+     */
+    private static final GeoDistance.Origin centerOrigin = new GeoDistance.Origin();
+
+    private DragFrameScheduler dragFrameScheduler;
+    private MapObjectPool mapObjectPool;
+    private boolean isFramePending;
+    private boolean isCenterDirty;
+    private boolean isRadiusDirty;
+    /** position reported by the dragged center marker, handed to the map as is */
+    private LatLng pendingCenter;
 
 
     public static class Builder {
@@ -69,6 +88,7 @@ public class GeofenceCircle {
         private static int DEFAULT_FILL_COLOR = 0xff0000ff;
         private static int DEFAULT_STROKE_COLOR = 0xff000000;
         private static int DEFAULT_STROKE_WIDTH = 1;
+        private static final int RESIZER_ICON_SIZE_PX = 120;
 
 
         //required
@@ -81,18 +101,19 @@ public class GeofenceCircle {
         private LatLng center;
         private double radius = new MarkerAreaMeasure(200, MarkerAreaMeasure.Unit.meters).value;
         private long circleId;
-        private int fillColor = Color.HSVToColor(70, new float[] {1, 1, 200});
-        private float strokeWidth = 4f;
-        private int strokeColor = Color.RED;
         private int minRadius = -1;
         private int maxRadius = -1;
-        private int centerIcon = android.R.drawable.ic_menu_mylocation;
-        private int resizerIcon = android.R.drawable.ic_menu_mylocation;
-        private Bitmap centerBitmap;
-        private float centerOffsetHorizontal = 0.5f;
-        private float centerOffsetVertical = 0.5f;
-        private float resizerOffsetHorizontal = 0.5f;
-        private float resizerOffsetVertical = 0.5f;
+        private GeofenceStyle.Builder styleBuilder = new GeofenceStyle.Builder();
+        private GeofenceStyle style;
+
+        private DragFrameScheduler dragFrameScheduler;
+        private GeofenceStore<GeofenceStyle> store;
+        private int slot;
+        private MapObjectPool mapObjectPool;
+        private GeofenceMetrics metrics = GeofenceMetrics.NONE;
+
+        private LatLng resizerPosition;
+        private BitmapDescriptor resizerIconDescriptor;
 
         private Marker centerMarker;
         private Marker resizerMarker;
@@ -128,17 +149,17 @@ public class GeofenceCircle {
         }
 
         public Builder strokeWidth(float strokeWidth) {
-            this.strokeWidth = strokeWidth;
+            styleBuilder().strokeWidth(strokeWidth);
             return this;
         }
 
         public Builder strokeColor(int strokeColor) {
-            this.strokeColor = strokeColor;
+            styleBuilder().strokeColor(strokeColor);
             return this;
         }
 
         public Builder fillColor(int fillColor) {
-            this.fillColor = fillColor;
+            styleBuilder().fillColor(fillColor);
             return this;
         }
 
@@ -153,40 +174,88 @@ public class GeofenceCircle {
         }
 
         public Builder centerIcon(int centerIcon) {
-            this.centerIcon = centerIcon;
+            styleBuilder().centerIcon(centerIcon);
             return this;
         }
 
         public Builder centerBitmap(Bitmap centerBitmap) {
-            this.centerBitmap = centerBitmap;
+            styleBuilder().centerBitmap(centerBitmap);
             return this;
         }
 
         public Builder resizerIcon(int resizerIcon) {
-            this.resizerIcon = resizerIcon;
+            styleBuilder().resizerIcon(resizerIcon);
             return this;
         }
 
         public Builder centerOffsetHorizontal(float centerOffsetHorizontal) {
-            this.centerOffsetHorizontal = centerOffsetHorizontal;
+            styleBuilder().centerOffsetHorizontal(centerOffsetHorizontal);
             return this;
         }
 
         public Builder centerOffsetVertical(float centerOffsetVertical) {
-            this.centerOffsetVertical = centerOffsetVertical;
+            styleBuilder().centerOffsetVertical(centerOffsetVertical);
             return this;
         }
 
         public Builder resizerOffsetHorizontal(float resizerOffsetHorizontal) {
-            this.resizerOffsetHorizontal = resizerOffsetHorizontal;
+            styleBuilder().resizerOffsetHorizontal(resizerOffsetHorizontal);
             return this;
         }
 
         public Builder resizerOffsetVertical(float resizerOffsetVertical) {
-            this.resizerOffsetVertical = resizerOffsetVertical;
+            styleBuilder().resizerOffsetVertical(resizerOffsetVertical);
             return this;
         }
 
+        /**
+         * Shared style of the circle, individual style options set afterwards apply on top of it
+         */
+        public Builder style(GeofenceStyle style) {
+            this.style = style;
+            this.styleBuilder = style == null ? new GeofenceStyle.Builder() : null;
+            return this;
+        }
+
+        private GeofenceStyle.Builder styleBuilder() {
+            if (styleBuilder == null) styleBuilder = new GeofenceStyle.Builder(style);
+            style = null;
+            return styleBuilder;
+        }
+
+        /**
+         * Defers drag driven geometry updates to the next frame, when set
+         */
+        Builder dragFrameScheduler(DragFrameScheduler dragFrameScheduler) {
+            this.dragFrameScheduler = dragFrameScheduler;
+            return this;
+        }
+
+        /**
+         * Store holding the circle's data, a private single slot store is used when not set
+         */
+        Builder store(GeofenceStore<GeofenceStyle> store) {
+            this.store = store;
+            return this;
+        }
+
+        /**
+         * Pool the map objects are taken from and returned to on {@link #removeArea()}, when set
+         */
+        Builder mapObjectPool(MapObjectPool mapObjectPool) {
+            this.mapObjectPool = mapObjectPool;
+            return this;
+        }
+
+        Builder metrics(GeofenceMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        private Marker addMarker(MarkerOptions options) {
+            return mapObjectPool != null ? mapObjectPool.acquireMarker(options) : map.addMarker(options);
+        }
+
         public Bitmap overlay(Bitmap bmp1, Bitmap bmp2) {
             Bitmap bmOverlay = Bitmap.createBitmap(bmp1.getWidth(), bmp1.getHeight(), bmp1.getConfig());
             Canvas canvas = new Canvas(bmOverlay);
@@ -220,89 +289,119 @@ public class GeofenceCircle {
         }
 
         public GeofenceCircle build(){
+            prepare();
+            return attach();
+        }
 
-            centerMarker = map.addMarker(new MarkerOptions()
-                    .position(center)
-                    .flat(true)
-                    .anchor(centerOffsetHorizontal, centerOffsetVertical)
-                    .draggable(isEnabled));
-
-
-            resizerMarker = map.addMarker(new MarkerOptions()
-                    .position(MarkerAreasUtils.toRadiusLatLng(center, radius))
-                    .anchor(resizerOffsetHorizontal, resizerOffsetVertical)
-                    .draggable(isEnabled));
-
-            if (resizerIcon != 0 && resizerIcon != -1) {
-
-                int px = 120;
-                Bitmap mDotMarkerBitmap = Bitmap.createBitmap(px, px, Bitmap.Config.ARGB_8888);
-                Canvas canvas = new Canvas(mDotMarkerBitmap);
-                Drawable shape = ResourcesCompat.getDrawable(context.getResources(), resizerIcon, null);
-                shape.setBounds(0, 0, mDotMarkerBitmap.getWidth(), mDotMarkerBitmap.getHeight());
-                shape.draw(canvas);
+        /**
+         * Builds the circle without blocking the calling thread: icons and geometry are prepared on
+         * the executor, only the map calls run on the main thread. The builder must not be changed
+         * afterwards. Many circles can be prepared in parallel on a multi-threaded executor.
+         *
+         * @param executor executor preparing icons and geometry
+         * @param onCircleBuiltListener called on the main thread once the circle is on the map, or with the
+         *                              failure when preparing it threw
+         */
+        public void buildAsync(Executor executor, final OnCircleBuiltListener onCircleBuiltListener) {
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        prepare();
+                    } catch (final RuntimeException e) {
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (onCircleBuiltListener != null) onCircleBuiltListener.onCircleBuildFailed(e);
+                            }
+                        });
+                        return;
+                    }
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            GeofenceCircle geofenceCircle = attach();
+                            if (onCircleBuiltListener != null) onCircleBuiltListener.onCircleBuilt(geofenceCircle);
+                        }
+                    });
+                }
+            });
+        }
 
-                resizerMarker.setIcon(BitmapDescriptorFactory.fromBitmap(mDotMarkerBitmap));
+        /**
+         * Work that does not touch the map, safe to run on any thread
+         */
+        private void prepare() {
+            long begin = metrics.begin(GeofenceMetrics.Timer.prepareCircle);
+            try {
+                if (style == null) style = styleBuilder.build();
+                resizerPosition = MarkerAreasUtils.toRadiusLatLng(center, radius);
+                resizerIconDescriptor = resizerIconDescriptor(context, style);
+            } finally {
+                metrics.end(GeofenceMetrics.Timer.prepareCircle, begin);
             }
+        }
 
+        /**
+         * Adds the prepared circle to the map, main thread only
+         */
+        private GeofenceCircle attach() {
+            long begin = metrics.begin(GeofenceMetrics.Timer.buildCircle);
+            try {
+                centerMarker = addMarker(new MarkerOptions()
+                        .position(center)
+                        .flat(true)
+                        .anchor(style.getCenterOffsetHorizontal(), style.getCenterOffsetVertical())
+                        .draggable(isEnabled));
+
+
+                MarkerOptions resizerOptions = new MarkerOptions()
+                        .position(resizerPosition)
+                        .anchor(style.getResizerOffsetHorizontal(), style.getResizerOffsetVertical())
+                        .draggable(isEnabled);
+
+                if (resizerIconDescriptor != null) {
+                    resizerOptions.icon(resizerIconDescriptor);
+                }
 
+                resizerMarker = addMarker(resizerOptions);
 
-            if (centerIcon != -1) {
-                BitmapDrawable bitmapDrawable = (BitmapDrawable) context.getResources().getDrawable(centerIcon);
-                Bitmap bitmap = bitmapDrawable.getBitmap();
-                Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, (int)(bitmap.getWidth() / 2), (int)(bitmap.getHeight() / 2), false);
-                //            centerMarker.setIcon(BitmapDescriptorFactory.fromBitmap(scaledBitmap));
-
-                int imageSize = (MetricsUtils.convertDIPsToPixels(context, 30f));
+                CircleOptions circleOptions = new CircleOptions()
+                        .center(center)
+                        .radius(radius)
+                        .strokeWidth(style.getStrokeWidth())
+                        .strokeColor(style.getStrokeColor())
+                        .fillColor(style.getFillColor());
+                circle = mapObjectPool != null ? mapObjectPool.acquireCircle(circleOptions) : map.addCircle(circleOptions);
 
-                if (centerBitmap == null) {
-                    if(centerBitmapCache == null) {
-                        centerBitmap = Bitmap.createBitmap(imageSize, imageSize, Bitmap.Config.RGB_565);
-                        Drawable drawable = context.getResources().getDrawable(android.R.drawable.sym_def_app_icon);
-                        Canvas canvas = new Canvas(centerBitmap);
-                        drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-                        drawable.draw(canvas);
-                        centerBitmapCache = centerBitmap;
-                    } else {
-                        centerBitmap = centerBitmapCache;
-                    }
+                if (store == null) store = new GeofenceStore<>(1);
+                int styleIndex = store.internStyle(style);
+                slot = store.allocate(circleId, center.latitude, center.longitude, radius, minRadius, maxRadius, styleIndex);
 
-                }
-
-//                centerMarker.setIcon(BitmapDescriptorFactory.fromBitmap(overlay(scaledBitmap, getRoundedCornerBitmap(centerBitmap, imageSize))));
+                return new GeofenceCircle(this);
+            } finally {
+                metrics.end(GeofenceMetrics.Timer.buildCircle, begin);
             }
-
-            circle = map.addCircle(new CircleOptions()
-                    .center(center)
-                    .radius(radius)
-                    .strokeWidth(strokeWidth)
-                    .strokeColor(strokeColor)
-                    .fillColor(fillColor));
-
-            return new GeofenceCircle(this);
         }
     }
 
+    /**
+     * @return resizer marker icon of the style, null for the default marker
+     */
+    static BitmapDescriptor resizerIconDescriptor(Context context, GeofenceStyle style) {
+        if (style.getResizerIcon() == 0 || style.getResizerIcon() == -1) return null;
+        return MarkerIconCache.getDrawableIcon(context, style.getResizerIcon(), Builder.RESIZER_ICON_SIZE_PX);
+    }
+
     private GeofenceCircle(Builder b) {
-        this.context                =   b.context;
-        this.map                    =   b.map;
-        this.isEnabled              =   b.isEnabled;
-        this.center                 =   b.center;
-        this.radius                 =   b.radius;
-        this.circleId               =   b.circleId;
-        this.strokeWidth            =   b.strokeWidth;
-        this.strokeColor            =   b.strokeColor;
-        this.fillColor              =   b.fillColor;
-        this.minRadius              =   b.minRadius;
-        this.maxRadius              =   b.maxRadius;
-        this.centerIcon             =   b.centerIcon;
-        this.centerBitmap           =   b.centerBitmap;
-        this.resizerIcon            =   b.resizerIcon;
-        this.centerOffsetHorizontal =   b.centerOffsetHorizontal;
-        this.centerOffsetVertical   =   b.centerOffsetVertical;
+        this.store                  =   b.store;
+        this.slot                   =   b.slot;
         this.centerMarker           =   b.centerMarker;
         this.resizerMarker          =   b.resizerMarker;
         this.circle                 =   b.circle;
+        this.dragFrameScheduler     =   b.dragFrameScheduler;
+        this.mapObjectPool          =   b.mapObjectPool;
 
     }
 
@@ -311,10 +410,38 @@ public class GeofenceCircle {
         onCenterUpdated(center);
     }
 
+    /**
+     * Removes the map objects, or hands them back to the pool, and frees the store slot.
+     * Id, center, radius and style stay readable afterwards.
+     */
     public void removeArea() {
-        if(resizerMarker != null) resizerMarker.remove();
-        if(centerMarker != null) centerMarker.remove();
-        if(circle != null) circle.remove();
+        if(dragFrameScheduler != null) dragFrameScheduler.cancel(this);
+        if(mapObjectPool != null) {
+            if(resizerMarker != null) mapObjectPool.release(resizerMarker);
+            if(centerMarker != null) mapObjectPool.release(centerMarker);
+            if(circle != null) mapObjectPool.release(circle);
+            if(dotMarker != null) mapObjectPool.release(dotMarker);
+        } else {
+            if(resizerMarker != null) resizerMarker.remove();
+            if(centerMarker != null) centerMarker.remove();
+            if(circle != null) circle.remove();
+            if(dotMarker != null) dotMarker.remove();
+        }
+        dotMarker = null;
+        resizerMarker = null;
+        pendingCenter = null;
+        centerMarker = null;
+        circle = null;
+        if(!isRemoved) {
+            GeofenceStore<GeofenceStyle> removedStore = new GeofenceStore<>(1);
+            int removedSlot = removedStore.allocate(store.getId(slot), store.getLatitude(slot), store.getLongitude(slot),
+                    store.getRadius(slot), store.getMinRadius(slot), store.getMaxRadius(slot),
+                    removedStore.internStyle(getStyle()));
+            store.free(slot);
+            store = removedStore;
+            slot = removedSlot;
+            isRemoved = true;
+        }
     }
 
 
@@ -332,13 +459,25 @@ public class GeofenceCircle {
      * When the marker is not in this circle returned action is MarkerMoveResult.none
      */
     public MarkerMoveResult onMarkerMoved(Marker marker) {
-        if (marker.equals(centerMarker)) {
-            onCenterUpdated(marker.getPosition());
+        return onMarkerMoved(getMarkerType(marker), marker);
+    }
+
+    /**
+     * Variant of {@link #onMarkerMoved(Marker)} for callers that already know the type of the marker
+     */
+    MarkerMoveResult onMarkerMoved(MarkerType markerType, Marker marker) {
+        if (markerType == MarkerType.move) {
+            moveCenter(marker.getPosition());
             return MarkerMoveResult.moved;
         }
 
-        if (marker.equals(resizerMarker)) {
-            double newRadius = MarkerAreasUtils.toRadiusMeters(centerMarker.getPosition(), marker.getPosition());
+        if (markerType == MarkerType.resize) {
+            LatLng resizerPosition = marker.getPosition();
+            double newRadius = centerOrigin.set(getLatitude(), getLongitude())
+                    .distanceTo(resizerPosition.latitude, resizerPosition.longitude);
+
+            int minRadius = store.getMinRadius(slot);
+            int maxRadius = store.getMaxRadius(slot);
 
             if (minRadius != -1 && newRadius < minRadius) {
                 return MarkerMoveResult.minRadius;
@@ -347,7 +486,7 @@ public class GeofenceCircle {
                 return MarkerMoveResult.maxRadius;
 
             } else {
-                setRadius(newRadius);
+                resize(newRadius);
 
                 return MarkerMoveResult.radiusChange;
             }
@@ -363,8 +502,21 @@ public class GeofenceCircle {
      * @param center
      */
     public void onCenterUpdated(LatLng center) {
+        store.setCenter(slot, center.latitude, center.longitude);
+        this.isCenterDirty = false;
         if(circle != null) circle.setCenter(center);
-        if(resizerMarker != null) resizerMarker.setPosition(MarkerAreasUtils.toRadiusLatLng(center, radius));
+        if(dotMarker != null) dotMarker.setPosition(center);
+        placeResizer();
+    }
+
+    /**
+     * Moves the resizer marker to the east edge of the circle
+     */
+    private void placeResizer() {
+        if(resizerMarker == null) return;
+        double latitude = getLatitude();
+        resizerMarker.setPosition(new LatLng(latitude,
+                MarkerAreasUtils.toRadiusLongitude(latitude, getLongitude(), getRadius())));
     }
 
     /**
@@ -374,16 +526,187 @@ public class GeofenceCircle {
      * @param radius
      */
     public void setRadius(double radius) {
-        this.radius = radius;
-        circle.setRadius(radius);
+        store.setRadius(slot, radius);
+        this.isRadiusDirty = false;
+        if(circle != null) circle.setRadius(radius);
     }
 
+    /**
+     * Drag variant of {@link #onCenterUpdated(LatLng)}, the map is updated on the next frame
+     * when a drag frame scheduler is attached
+     *
+     * The circle is moved to the marker's own position, only the resizer marker needs a new position
+     * object, once per applied frame.
+     */
+    private void moveCenter(LatLng center) {
+        store.setCenter(slot, center.latitude, center.longitude);
+        this.pendingCenter = center;
+        this.isCenterDirty = true;
+        if (dragFrameScheduler == null) {
+            applyPendingGeometry();
+            return;
+        }
+        dragFrameScheduler.schedule(this);
+    }
+
+    /**
+     * Drag variant of {@link #setRadius(double)}, the map is updated on the next frame
+     * when a drag frame scheduler is attached
+     */
+    private void resize(double radius) {
+        if (dragFrameScheduler == null) {
+            setRadius(radius);
+            return;
+        }
+        store.setRadius(slot, radius);
+        this.isRadiusDirty = true;
+        dragFrameScheduler.schedule(this);
+    }
+
+    /**
+     * Pushes the latest center and radius recorded by drag events to the map
+     */
+    void applyPendingGeometry() {
+        if (isCenterDirty) {
+            this.isCenterDirty = false;
+            if(circle != null) circle.setCenter(pendingCenter);
+            if(dotMarker != null) dotMarker.setPosition(pendingCenter);
+            placeResizer();
+            this.pendingCenter = null;
+        }
+        if (isRadiusDirty) setRadius(getRadius());
+    }
+
+    boolean isFramePending() {
+        return isFramePending;
+    }
+
+    void setFramePending(boolean isFramePending) {
+        this.isFramePending = isFramePending;
+    }
+
+    /**
+     * @return center of the circle, the last center once removed
+     */
     public LatLng getCenter() {
-        return center;
+        return new LatLng(store.getLatitude(slot), store.getLongitude(slot));
+    }
+
+    double getLatitude() {
+        return store.getLatitude(slot);
+    }
+
+    double getLongitude() {
+        return store.getLongitude(slot);
+    }
+
+    /**
+     * @return slot in the store the circle was built with, only valid while not removed
+     */
+    int getSlot() {
+        return slot;
+    }
+
+    boolean isRemoved() {
+        return isRemoved;
+    }
+
+    Circle getMapCircle() {
+        return circle;
+    }
+
+    Marker getDotMarker() {
+        return dotMarker;
+    }
+
+    void setDotMarker(Marker dotMarker) {
+        this.dotMarker = dotMarker;
+    }
+
+    LevelOfDetail.Tier getTier() {
+        return tier;
+    }
+
+    void setTier(LevelOfDetail.Tier tier) {
+        this.tier = tier;
+    }
+
+    public Marker getCenterMarker() {
+        return centerMarker;
+    }
+
+    public Marker getResizerMarker() {
+        return resizerMarker;
+    }
+
+    /**
+     * Resolves the role of a marker within this circle by comparing marker ids
+     *
+     * @param marker
+     * @return MarkerType.move for the position marker, MarkerType.resize for the resizing marker,
+     * MarkerType.none when the marker does not belong to this circle
+     */
+    public MarkerType getMarkerType(Marker marker) {
+        String markerId = marker.getId();
+        if (centerMarker != null && markerId.equals(centerMarker.getId())) return MarkerType.move;
+        if (resizerMarker != null && markerId.equals(resizerMarker.getId())) return MarkerType.resize;
+        return MarkerType.none;
+    }
+
+    /**
+     * @return shared style of the circle, the last style once removed
+     */
+    public GeofenceStyle getStyle() {
+        return store.getStyle(store.getStyleIndex(slot));
+    }
+
+    public int getFillColor() {
+        return getStyle().getFillColor();
+    }
+
+    /**
+     * Set the fill color of the circle, the map circle is only touched when the color changes
+     */
+    public void setFillColor(int fillColor) {
+        GeofenceStyle style = getStyle();
+        if (style.getFillColor() == fillColor) return;
+        store.setStyleIndex(slot, store.internStyle(style.withFillColor(fillColor)));
+        if(circle != null) circle.setFillColor(fillColor);
+    }
+
+    /**
+     * Switches the circle to an interned style, only the properties that differ are pushed to the map objects
+     *
+     * @param resizerIconDescriptor icon of the new style's resizer icon, resolved once by the caller
+     */
+    void applyStyle(int styleIndex, BitmapDescriptor resizerIconDescriptor) {
+        if (isRemoved) return;
+        GeofenceStyle from = getStyle();
+        GeofenceStyle to = store.getStyle(styleIndex);
+        store.setStyleIndex(slot, styleIndex);
+
+        if (circle != null) {
+            if (from.getFillColor() != to.getFillColor()) circle.setFillColor(to.getFillColor());
+            if (from.getStrokeColor() != to.getStrokeColor()) circle.setStrokeColor(to.getStrokeColor());
+            if (from.getStrokeWidth() != to.getStrokeWidth()) circle.setStrokeWidth(to.getStrokeWidth());
+        }
+        if (centerMarker != null && (from.getCenterOffsetHorizontal() != to.getCenterOffsetHorizontal()
+                || from.getCenterOffsetVertical() != to.getCenterOffsetVertical())) {
+            centerMarker.setAnchor(to.getCenterOffsetHorizontal(), to.getCenterOffsetVertical());
+        }
+        if (resizerMarker != null) {
+            if (from.getResizerOffsetHorizontal() != to.getResizerOffsetHorizontal()
+                    || from.getResizerOffsetVertical() != to.getResizerOffsetVertical()) {
+                resizerMarker.setAnchor(to.getResizerOffsetHorizontal(), to.getResizerOffsetVertical());
+            }
+            if (from.getResizerIcon() != to.getResizerIcon()) {
+                resizerMarker.setIcon(resizerIconDescriptor != null ? resizerIconDescriptor : BitmapDescriptorFactory.defaultMarker());
+            }
+        }
     }
 
     public double getRadius() {
-        return radius;
+        return store.getRadius(slot);
     }
 
 
@@ -0,0 +1,41 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+/**
+ * Instrumentation surface the manager and circle builders report into
+ *
+ * Hot paths are bracketed by {@link #begin(Timer)} and {@link #end(Timer, long)} on the same thread,
+ * object counts and cache statistics are reported as gauges. Implementations must be cheap and must
+ * not block, they run on the drag path. {@link #NONE} is used unless another implementation is set.
+ */
+public interface GeofenceMetrics {
+
+    public static enum Timer {markerDrag, markThis, buildCircle, prepareCircle, plotFrame, cameraIdle}
+
+    public static enum Gauge {savedCircles, circles, markers, pooledObjects, iconCacheHits, iconCacheMisses, iconCacheEntries, iconBitmapBytes}
+
+    /**
+     * Starts a timed section
+     *
+     * @return token to pass to {@link #end(Timer, long)}, usually {@link System#nanoTime()}
+     */
+    long begin(Timer timer);
+
+    void end(Timer timer, long beginToken);
+
+    void gauge(Gauge gauge, long value);
+
+    GeofenceMetrics NONE = new GeofenceMetrics() {
+        @Override
+        public long begin(Timer timer) {
+            return 0;
+        }
+
+        @Override
+        public void end(Timer timer, long beginToken) {
+        }
+
+        @Override
+        public void gauge(Gauge gauge, long value) {
+        }
+    };
+}
@@ -0,0 +1,238 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.content.Context;
+import android.graphics.Color;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Polygon geofence with a draggable marker on every vertex
+ *
+ * Containment is answered by a {@link GeofencePolygonIndex}, built on the first test after the
+ * vertices changed, so point tests are O(log n) even for polygons with thousands of vertices.
+ */
+public class GeofencePolygon {
+
+    private final long polygonId;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    private Polygon polygon;
+    private Marker[] vertexMarkers;
+    private final HashMap<String, Integer> vertexByMarkerId = new HashMap<>();
+    private MapObjectPool mapObjectPool;
+    private GeofencePolygonIndex index;
+
+    public static class Builder {
+
+        private static final int VERTEX_ICON_SIZE_PX = 60;
+
+        private Context context;
+        private GoogleMap map;
+        private boolean isEnabled;
+        private List<LatLng> vertices;
+        private long polygonId;
+        private int fillColor = Color.HSVToColor(70, new float[] {1, 1, 200});
+        private float strokeWidth = 4f;
+        private int strokeColor = Color.RED;
+        private int vertexIcon = android.R.drawable.ic_menu_mylocation;
+
+        private MapObjectPool mapObjectPool;
+
+        public Builder(Context context) {
+            this.context = context;
+        }
+
+        public Builder map(GoogleMap map) {
+            this.map = map;
+            return this;
+        }
+
+        /**
+         * Vertex markers are only added when enabled
+         */
+        public Builder enabled(boolean isEnabled) {
+            this.isEnabled = isEnabled;
+            return this;
+        }
+
+        /**
+         * At least 3 vertices, in order around the polygon
+         */
+        public Builder vertices(List<LatLng> vertices) {
+            this.vertices = vertices;
+            return this;
+        }
+
+        public Builder polygonId(long polygonId) {
+            this.polygonId = polygonId;
+            return this;
+        }
+
+        public Builder fillColor(int fillColor) {
+            this.fillColor = fillColor;
+            return this;
+        }
+
+        public Builder strokeWidth(float strokeWidth) {
+            this.strokeWidth = strokeWidth;
+            return this;
+        }
+
+        public Builder strokeColor(int strokeColor) {
+            this.strokeColor = strokeColor;
+            return this;
+        }
+
+        public Builder vertexIcon(int vertexIcon) {
+            this.vertexIcon = vertexIcon;
+            return this;
+        }
+
+        Builder mapObjectPool(MapObjectPool mapObjectPool) {
+            this.mapObjectPool = mapObjectPool;
+            return this;
+        }
+
+        public GeofencePolygon build() {
+            if (vertices == null || vertices.size() < 3) throw new IllegalArgumentException("a polygon needs at least 3 vertices");
+            return new GeofencePolygon(this);
+        }
+    }
+
+    private GeofencePolygon(Builder b) {
+        int n = b.vertices.size();
+        this.polygonId      =   b.polygonId;
+        this.latitudes      =   new double[n];
+        this.longitudes     =   new double[n];
+        this.mapObjectPool  =   b.mapObjectPool;
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = b.vertices.get(i).latitude;
+            longitudes[i] = b.vertices.get(i).longitude;
+        }
+
+        this.polygon = b.map.addPolygon(new PolygonOptions()
+                .addAll(b.vertices)
+                .strokeWidth(b.strokeWidth)
+                .strokeColor(b.strokeColor)
+                .fillColor(b.fillColor));
+
+        this.vertexMarkers = new Marker[b.isEnabled ? n : 0];
+        for (int i = 0; i < vertexMarkers.length; i++) {
+            MarkerOptions options = new MarkerOptions()
+                    .position(b.vertices.get(i))
+                    .anchor(0.5f, 0.5f)
+                    .draggable(true);
+            if (b.vertexIcon != 0 && b.vertexIcon != -1) {
+                options.icon(MarkerIconCache.getDrawableIcon(b.context, b.vertexIcon, Builder.VERTEX_ICON_SIZE_PX));
+            }
+            vertexMarkers[i] = mapObjectPool != null ? mapObjectPool.acquireMarker(options) : b.map.addMarker(options);
+            vertexByMarkerId.put(vertexMarkers[i].getId(), i);
+        }
+    }
+
+    public long getPolygonId() {
+        return polygonId;
+    }
+
+    public int getVertexCount() {
+        return latitudes.length;
+    }
+
+    public LatLng getVertex(int vertexIndex) {
+        return new LatLng(latitudes[vertexIndex], longitudes[vertexIndex]);
+    }
+
+    public List<LatLng> getVertices() {
+        List<LatLng> vertices = new ArrayList<>(latitudes.length);
+        for (int i = 0; i < latitudes.length; i++) {
+            vertices.add(new LatLng(latitudes[i], longitudes[i]));
+        }
+        return vertices;
+    }
+
+    /**
+     * @return index of the vertex the marker drags, -1 when the marker is not a vertex of this polygon
+     */
+    public int getVertexIndex(Marker marker) {
+        Integer vertexIndex = vertexByMarkerId.get(marker.getId());
+        return vertexIndex != null ? vertexIndex : -1;
+    }
+
+    /**
+     * Moves the vertex dragged by the marker and redraws the polygon
+     *
+     * @return index of the moved vertex, -1 when the marker is not a vertex of this polygon
+     */
+    public int onVertexMoved(Marker marker) {
+        int vertexIndex = getVertexIndex(marker);
+        if (vertexIndex == -1) return -1;
+        onVertexMoved(vertexIndex, marker);
+        return vertexIndex;
+    }
+
+    /**
+     * Variant of {@link #onVertexMoved(Marker)} for callers that already know the vertex of the marker
+     */
+    void onVertexMoved(int vertexIndex, Marker marker) {
+        LatLng position = marker.getPosition();
+        latitudes[vertexIndex] = position.latitude;
+        longitudes[vertexIndex] = position.longitude;
+        index = null;
+        if (polygon != null) polygon.setPoints(getVertices());
+    }
+
+    public boolean contains(LatLng point) {
+        if (index == null) index = new GeofencePolygonIndex(latitudes, longitudes);
+        return index.contains(point.latitude, point.longitude);
+    }
+
+    public LatLngBounds getBounds() {
+        double south = Double.POSITIVE_INFINITY, north = Double.NEGATIVE_INFINITY;
+        double west = Double.POSITIVE_INFINITY, east = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < latitudes.length; i++) {
+            south = Math.min(south, latitudes[i]);
+            north = Math.max(north, latitudes[i]);
+            west = Math.min(west, longitudes[i]);
+            east = Math.max(east, longitudes[i]);
+        }
+        return new LatLngBounds(new LatLng(south, west), new LatLng(north, east));
+    }
+
+    public void setFillColor(int fillColor) {
+        if (polygon != null) polygon.setFillColor(fillColor);
+    }
+
+    Marker[] getVertexMarkers() {
+        return vertexMarkers;
+    }
+
+    public void removeArea() {
+        for (Marker vertexMarker : vertexMarkers) {
+            if (mapObjectPool != null) {
+                mapObjectPool.release(vertexMarker);
+            } else {
+                vertexMarker.remove();
+            }
+        }
+        vertexMarkers = new Marker[0];
+        vertexByMarkerId.clear();
+        if (polygon != null) polygon.remove();
+        polygon = null;
+    }
+
+    @Override
+    public String toString() {
+        return "polygon: " + polygonId + " vertices: " + latitudes.length;
+    }
+}
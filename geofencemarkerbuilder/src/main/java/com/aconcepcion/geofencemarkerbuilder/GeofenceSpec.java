@@ -0,0 +1,48 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import com.google.android.gms.maps.model.LatLng;
+
+/**
+ * Plain description of a saved geofence, used to plot many circles at once
+ */
+public class GeofenceSpec {
+
+    private final LatLng center;
+    private final double radius;
+    private final long circleId;
+    private final int fillColor;
+
+    /**
+     * @param center center of circle in geo coordinates
+     * @param radius radius of circle in meters
+     * @param circleId id of the geofence, e.g. as returned by the server
+     * @param fillColor circle fill color
+     */
+    public GeofenceSpec(LatLng center, double radius, long circleId, int fillColor) {
+        this.center = center;
+        this.radius = radius;
+        this.circleId = circleId;
+        this.fillColor = fillColor;
+    }
+
+    public LatLng getCenter() {
+        return center;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public long getCircleId() {
+        return circleId;
+    }
+
+    public int getFillColor() {
+        return fillColor;
+    }
+
+    @Override
+    public String toString() {
+        return "center: " + center + " radius: " + radius + " id: " + circleId;
+    }
+}
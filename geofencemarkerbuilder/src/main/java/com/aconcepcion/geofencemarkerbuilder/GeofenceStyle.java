@@ -0,0 +1,207 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+/**
+ * Immutable drawing style shared by circles
+ *
+ * Circles do not copy their style: equal styles are interned in the {@link GeofenceStore} style table
+ * and every circle only keeps the index of its entry. A class of geofences is restyled at once with
+ * {@link MarkerBuilderManagerV2#restyle(GeofenceStyle, GeofenceStyle)}.
+ */
+public final class GeofenceStyle {
+
+    private final float strokeWidth;
+    private final int strokeColor;
+    private final int fillColor;
+    private final int centerIcon;
+    private final Bitmap centerBitmap;
+    private final int resizerIcon;
+    private final float centerOffsetHorizontal;
+    private final float centerOffsetVertical;
+    private final float resizerOffsetHorizontal;
+    private final float resizerOffsetVertical;
+
+    public static class Builder {
+        private float strokeWidth = 4f;
+        private int strokeColor = Color.RED;
+        private int fillColor = Color.HSVToColor(70, new float[] {1, 1, 200});
+        private int centerIcon = android.R.drawable.ic_menu_mylocation;
+        private Bitmap centerBitmap;
+        private int resizerIcon = android.R.drawable.ic_menu_mylocation;
+        private float centerOffsetHorizontal = 0.5f;
+        private float centerOffsetVertical = 0.5f;
+        private float resizerOffsetHorizontal = 0.5f;
+        private float resizerOffsetVertical = 0.5f;
+
+        public Builder() {
+        }
+
+        /**
+         * Starts from the values of an existing style
+         */
+        public Builder(GeofenceStyle style) {
+            this.strokeWidth                =   style.strokeWidth;
+            this.strokeColor                =   style.strokeColor;
+            this.fillColor                  =   style.fillColor;
+            this.centerIcon                 =   style.centerIcon;
+            this.centerBitmap               =   style.centerBitmap;
+            this.resizerIcon                =   style.resizerIcon;
+            this.centerOffsetHorizontal     =   style.centerOffsetHorizontal;
+            this.centerOffsetVertical       =   style.centerOffsetVertical;
+            this.resizerOffsetHorizontal    =   style.resizerOffsetHorizontal;
+            this.resizerOffsetVertical      =   style.resizerOffsetVertical;
+        }
+
+        public Builder strokeWidth(float strokeWidth) {
+            this.strokeWidth = strokeWidth;
+            return this;
+        }
+
+        public Builder strokeColor(int strokeColor) {
+            this.strokeColor = strokeColor;
+            return this;
+        }
+
+        public Builder fillColor(int fillColor) {
+            this.fillColor = fillColor;
+            return this;
+        }
+
+        public Builder centerIcon(int centerIcon) {
+            this.centerIcon = centerIcon;
+            return this;
+        }
+
+        public Builder centerBitmap(Bitmap centerBitmap) {
+            this.centerBitmap = centerBitmap;
+            return this;
+        }
+
+        public Builder resizerIcon(int resizerIcon) {
+            this.resizerIcon = resizerIcon;
+            return this;
+        }
+
+        public Builder centerOffsetHorizontal(float centerOffsetHorizontal) {
+            this.centerOffsetHorizontal = centerOffsetHorizontal;
+            return this;
+        }
+
+        public Builder centerOffsetVertical(float centerOffsetVertical) {
+            this.centerOffsetVertical = centerOffsetVertical;
+            return this;
+        }
+
+        public Builder resizerOffsetHorizontal(float resizerOffsetHorizontal) {
+            this.resizerOffsetHorizontal = resizerOffsetHorizontal;
+            return this;
+        }
+
+        public Builder resizerOffsetVertical(float resizerOffsetVertical) {
+            this.resizerOffsetVertical = resizerOffsetVertical;
+            return this;
+        }
+
+        public GeofenceStyle build() {
+            return new GeofenceStyle(this);
+        }
+    }
+
+    private GeofenceStyle(Builder b) {
+        this.strokeWidth                =   b.strokeWidth;
+        this.strokeColor                =   b.strokeColor;
+        this.fillColor                  =   b.fillColor;
+        this.centerIcon                 =   b.centerIcon;
+        this.centerBitmap               =   b.centerBitmap;
+        this.resizerIcon                =   b.resizerIcon;
+        this.centerOffsetHorizontal     =   b.centerOffsetHorizontal;
+        this.centerOffsetVertical       =   b.centerOffsetVertical;
+        this.resizerOffsetHorizontal    =   b.resizerOffsetHorizontal;
+        this.resizerOffsetVertical      =   b.resizerOffsetVertical;
+    }
+
+    /**
+     * @return this style when the fill color is already the same, otherwise a copy with the fill color
+     */
+    public GeofenceStyle withFillColor(int fillColor) {
+        if (fillColor == this.fillColor) return this;
+        return new Builder(this).fillColor(fillColor).build();
+    }
+
+    public float getStrokeWidth() {
+        return strokeWidth;
+    }
+
+    public int getStrokeColor() {
+        return strokeColor;
+    }
+
+    public int getFillColor() {
+        return fillColor;
+    }
+
+    public int getCenterIcon() {
+        return centerIcon;
+    }
+
+    public Bitmap getCenterBitmap() {
+        return centerBitmap;
+    }
+
+    public int getResizerIcon() {
+        return resizerIcon;
+    }
+
+    public float getCenterOffsetHorizontal() {
+        return centerOffsetHorizontal;
+    }
+
+    public float getCenterOffsetVertical() {
+        return centerOffsetVertical;
+    }
+
+    public float getResizerOffsetHorizontal() {
+        return resizerOffsetHorizontal;
+    }
+
+    public float getResizerOffsetVertical() {
+        return resizerOffsetVertical;
+    }
+
+    /**
+     * Bitmaps are compared by identity
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GeofenceStyle)) return false;
+        GeofenceStyle style = (GeofenceStyle) o;
+        return Float.compare(style.strokeWidth, strokeWidth) == 0
+                && strokeColor == style.strokeColor
+                && fillColor == style.fillColor
+                && centerIcon == style.centerIcon
+                && centerBitmap == style.centerBitmap
+                && resizerIcon == style.resizerIcon
+                && Float.compare(style.centerOffsetHorizontal, centerOffsetHorizontal) == 0
+                && Float.compare(style.centerOffsetVertical, centerOffsetVertical) == 0
+                && Float.compare(style.resizerOffsetHorizontal, resizerOffsetHorizontal) == 0
+                && Float.compare(style.resizerOffsetVertical, resizerOffsetVertical) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(strokeWidth);
+        result = 31 * result + strokeColor;
+        result = 31 * result + fillColor;
+        result = 31 * result + centerIcon;
+        result = 31 * result + System.identityHashCode(centerBitmap);
+        result = 31 * result + resizerIcon;
+        result = 31 * result + Float.floatToIntBits(centerOffsetHorizontal);
+        result = 31 * result + Float.floatToIntBits(centerOffsetVertical);
+        result = 31 * result + Float.floatToIntBits(resizerOffsetHorizontal);
+        result = 31 * result + Float.floatToIntBits(resizerOffsetVertical);
+        return result;
+    }
+}
@@ -0,0 +1,436 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.LruCache;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders large sets of read-only geofences into map tiles instead of one Circle per geofence
+ *
+ * Tiles are requested by the map on its tile worker threads. For each tile, the geofences whose bounds
+ * touch the tile are picked from a spatial index and drawn with their fill and stroke. Rendered tiles
+ * are kept in a memory LRU cache and, when a cache directory is set, as PNG files on disk. Changing a
+ * geofence only invalidates the tiles it covered or now covers, and asks the overlay to reload.
+ *
+ * Keep the geofence being edited out of the provider and show it as an interactive {@link GeofenceCircle}.
+ */
+public class GeofenceTileProvider implements TileProvider {
+
+    /**
+     * Above this many tiles per zoom level an invalidation drops the whole zoom level from the disk cache
+     */
+    private static final int MAX_INVALIDATED_TILES_PER_ZOOM = 1024;
+
+    private static final int MAX_TILE_SIZE_PX = 512;
+
+    /**
+     * Cache entry of tiles without any geofence
+     */
+    private static final Tile EMPTY = new Tile(0, 0, new byte[0]);
+
+    /**
+     * Immutable geofence model, replaced on update so tile workers never see half written values
+     */
+    static final class TiledGeofence {
+        final GeofenceSpec spec;
+        final double x;
+        final double y;
+        final double radiusUnits;
+
+        TiledGeofence(GeofenceSpec spec) {
+            this.spec = spec;
+            this.x = WebMercator.x(spec.getCenter().longitude);
+            this.y = WebMercator.y(spec.getCenter().latitude);
+            this.radiusUnits = spec.getRadius() / WebMercator.metersPerUnit(spec.getCenter().latitude);
+        }
+    }
+
+    private final int tileSizePx;
+    private final float strokeWidth;
+    private final int strokeColor;
+    private final File diskCacheDir;
+
+    /**
+     * Guards geofences, index and generation
+     */
+    private final Object lock = new Object();
+    private final HashMap<Long, TiledGeofence> geofences = new HashMap<>();
+    private final GeofenceGridIndex<TiledGeofence> index = new GeofenceGridIndex<>();
+    private int generation;
+
+    private final LruCache<String, Tile> memoryCache;
+    private final Set<Integer> diskCachedZooms = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    private volatile TileOverlay tileOverlay;
+
+    public static class Builder {
+        private Context context;
+        private File diskCacheDir;
+        private int memoryCacheBytes = 4 * 1024 * 1024;
+        private float strokeWidth = 4f;
+        private int strokeColor = Color.RED;
+
+        public Builder(Context context) {
+            this.context = context;
+        }
+
+        /**
+         * Directory for rendered tiles, no disk cache when not set. The provider owns its content.
+         */
+        public Builder diskCacheDir(File diskCacheDir) {
+            this.diskCacheDir = diskCacheDir;
+            return this;
+        }
+
+        public Builder memoryCacheBytes(int memoryCacheBytes) {
+            this.memoryCacheBytes = memoryCacheBytes;
+            return this;
+        }
+
+        public Builder strokeWidth(float strokeWidth) {
+            this.strokeWidth = strokeWidth;
+            return this;
+        }
+
+        public Builder strokeColor(int strokeColor) {
+            this.strokeColor = strokeColor;
+            return this;
+        }
+
+        public GeofenceTileProvider build() {
+            return new GeofenceTileProvider(this);
+        }
+    }
+
+    private GeofenceTileProvider(Builder b) {
+        float density = b.context.getResources().getDisplayMetrics().density;
+        this.tileSizePx     =   Math.min(MAX_TILE_SIZE_PX, Math.round(WebMercator.TILE_SIZE_DP * density));
+        this.strokeWidth    =   b.strokeWidth;
+        this.strokeColor    =   b.strokeColor;
+        this.diskCacheDir   =   b.diskCacheDir;
+        this.memoryCache    =   new LruCache<String, Tile>(b.memoryCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Tile tile) {
+                return Math.max(1, tile.data.length);
+            }
+        };
+
+        // tiles left by a previous run are invalidated like any other
+        File[] zoomDirs = diskCacheDir != null ? diskCacheDir.listFiles() : null;
+        if (zoomDirs != null) {
+            for (File zoomDir : zoomDirs) {
+                try {
+                    diskCachedZooms.add(Integer.valueOf(zoomDir.getName()));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the tile overlay to the map, the overlay is reloaded whenever geofences change
+     */
+    public TileOverlay addTo(GoogleMap map) {
+        tileOverlay = map.addTileOverlay(new TileOverlayOptions().tileProvider(this));
+        return tileOverlay;
+    }
+
+    /**
+     * Replaces every geofence and drops all cached tiles
+     */
+    public void setGeofences(Collection<GeofenceSpec> specs) {
+        synchronized (lock) {
+            generation++;
+            geofences.clear();
+            index.clear();
+            for (GeofenceSpec spec : specs) {
+                put(new TiledGeofence(spec));
+            }
+        }
+        memoryCache.evictAll();
+        for (Integer zoom : diskCachedZooms) {
+            deleteZoom(zoom);
+        }
+        invalidated();
+        reload();
+    }
+
+    /**
+     * Adds or replaces a geofence, only the tiles it touches are rendered again
+     */
+    public void upsert(GeofenceSpec spec) {
+        TiledGeofence geofence = new TiledGeofence(spec);
+        TiledGeofence previous;
+        synchronized (lock) {
+            generation++;
+            previous = geofences.get(spec.getCircleId());
+            if (previous != null) index.remove(previous);
+            put(geofence);
+        }
+        if (previous != null) invalidate(previous);
+        invalidate(geofence);
+        invalidated();
+        reload();
+    }
+
+    /**
+     * Removes a geofence, e.g. to edit it as an interactive circle
+     *
+     * @return the removed geofence, or null
+     */
+    public GeofenceSpec remove(long circleId) {
+        TiledGeofence previous;
+        synchronized (lock) {
+            previous = geofences.remove(circleId);
+            if (previous == null) return null;
+            generation++;
+            index.remove(previous);
+        }
+        invalidate(previous);
+        invalidated();
+        reload();
+        return previous.spec;
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return geofences.size();
+        }
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        String key = zoom + "/" + x + "/" + y;
+        int lookupGeneration;
+        synchronized (lock) {
+            lookupGeneration = generation;
+        }
+        Tile tile = memoryCache.get(key);
+        if (tile == null) {
+            tile = readDiskTile(zoom, x, y);
+            if (tile != null) {
+                synchronized (lock) {
+                    // a geofence changed while reading, the tile may have been invalidated meanwhile
+                    if (lookupGeneration == generation) memoryCache.put(key, tile);
+                }
+            }
+        }
+        if (tile != null) return tile == EMPTY ? NO_TILE : tile;
+
+        int renderGeneration;
+        ArrayList<TiledGeofence> touching = new ArrayList<>();
+        double scale = Math.pow(2, zoom);
+        // stroke may reach past the radius into a neighbour tile
+        double margin = strokeWidth / (tileSizePx * scale);
+        double west = x / scale - margin;
+        double east = (x + 1) / scale + margin;
+        double north = y / scale - margin;
+        double south = (y + 1) / scale + margin;
+        synchronized (lock) {
+            renderGeneration = generation;
+            index.intersecting(WebMercator.latitude(Math.min(1, south)), WebMercator.longitude(Math.max(0, west)),
+                    WebMercator.latitude(Math.max(0, north)), WebMercator.longitude(Math.min(1, east)), touching);
+        }
+
+        tile = touching.isEmpty() ? EMPTY : render(touching, x, y, scale);
+        File diskTemp = writeDiskTemp(zoom, x, y, tile);
+
+        synchronized (lock) {
+            // a geofence changed while rendering, the tile may be stale and is not cached
+            if (renderGeneration == generation) {
+                memoryCache.put(key, tile);
+                if (diskTemp != null && diskTemp.renameTo(diskTileFile(zoom, x, y))) diskTemp = null;
+            }
+        }
+        if (diskTemp != null) diskTemp.delete();
+        return tile == EMPTY ? NO_TILE : tile;
+    }
+
+    /**
+     * Called once the tiles of a change were evicted. A tile worker that read the generation between the
+     * change and the end of the eviction may still read a tile the eviction was about to delete, moving the
+     * generation again keeps that tile out of the memory cache.
+     */
+    private void invalidated() {
+        synchronized (lock) {
+            generation++;
+        }
+    }
+
+    private void put(TiledGeofence geofence) {
+        GeofenceSpec spec = geofence.spec;
+        geofences.put(spec.getCircleId(), geofence);
+        index.put(geofence, spec.getCenter().latitude, spec.getCenter().longitude, spec.getRadius());
+    }
+
+    private Tile render(ArrayList<TiledGeofence> touching, int tileX, int tileY, double scale) {
+        Bitmap bitmap = Bitmap.createBitmap(tileSizePx, tileSizePx, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint fill = new Paint(Paint.ANTI_ALIAS_FLAG);
+        fill.setStyle(Paint.Style.FILL);
+        Paint stroke = new Paint(Paint.ANTI_ALIAS_FLAG);
+        stroke.setStyle(Paint.Style.STROKE);
+        stroke.setStrokeWidth(strokeWidth);
+        stroke.setColor(strokeColor);
+
+        double worldPx = tileSizePx * scale;
+        boolean isDrawn = false;
+        for (int i = 0; i < touching.size(); i++) {
+            TiledGeofence geofence = touching.get(i);
+            float radiusPx = (float) (geofence.radiusUnits * worldPx);
+            if (radiusPx < 0.5f) continue;
+
+            float cx = (float) (geofence.x * worldPx - tileX * (double) tileSizePx);
+            float cy = (float) (geofence.y * worldPx - tileY * (double) tileSizePx);
+            fill.setColor(geofence.spec.getFillColor());
+            canvas.drawCircle(cx, cy, radiusPx, fill);
+            if (strokeWidth > 0) canvas.drawCircle(cx, cy, radiusPx, stroke);
+            isDrawn = true;
+        }
+        if (!isDrawn) {
+            bitmap.recycle();
+            return EMPTY;
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, png);
+        bitmap.recycle();
+        return new Tile(tileSizePx, tileSizePx, png.toByteArray());
+    }
+
+    /**
+     * Evicts the cached tiles covered by the geofence at every cached zoom level
+     */
+    private void invalidate(TiledGeofence geofence) {
+        double west = geofence.x - geofence.radiusUnits;
+        double east = geofence.x + geofence.radiusUnits;
+        double north = geofence.y - geofence.radiusUnits;
+        double south = geofence.y + geofence.radiusUnits;
+
+        for (String key : memoryCache.snapshot().keySet()) {
+            String[] zxy = key.split("/");
+            int zoom = Integer.parseInt(zxy[0]);
+            double scale = Math.pow(2, zoom);
+            double margin = strokeWidth / (tileSizePx * scale);
+            int x = Integer.parseInt(zxy[1]);
+            int y = Integer.parseInt(zxy[2]);
+            if ((x + 1) / scale + margin >= west && x / scale - margin <= east
+                    && (y + 1) / scale + margin >= north && y / scale - margin <= south) {
+                memoryCache.remove(key);
+            }
+        }
+
+        for (Integer zoom : diskCachedZooms) {
+            double scale = Math.pow(2, zoom);
+            double margin = strokeWidth / (tileSizePx * scale);
+            int minX = (int) Math.floor((west - margin) * scale);
+            int maxX = (int) Math.floor((east + margin) * scale);
+            int minY = (int) Math.floor((north - margin) * scale);
+            int maxY = (int) Math.floor((south + margin) * scale);
+            if ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_INVALIDATED_TILES_PER_ZOOM) {
+                deleteZoom(zoom);
+                continue;
+            }
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    diskTileFile(zoom, x, y).delete();
+                }
+            }
+        }
+    }
+
+    private void reload() {
+        TileOverlay overlay = tileOverlay;
+        if (overlay != null) overlay.clearTileCache();
+    }
+
+    private File diskTileFile(int zoom, int x, int y) {
+        return new File(diskCacheDir, zoom + File.separator + x + File.separator + y + ".png");
+    }
+
+    private Tile readDiskTile(int zoom, int x, int y) {
+        if (diskCacheDir == null) return null;
+        File file = diskTileFile(zoom, x, y);
+        if (!file.isFile()) return null;
+
+        byte[] data = new byte[(int) file.length()];
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                int read = 0;
+                while (read < data.length) {
+                    int n = in.read(data, read, data.length - read);
+                    if (n < 0) return null;
+                    read += n;
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return data.length == 0 ? EMPTY : new Tile(tileSizePx, tileSizePx, data);
+    }
+
+    /**
+     * Writes the tile next to its cache file, it is moved in place once known to be current
+     *
+     * @return the temporary file, or null when there is no disk cache or writing failed
+     */
+    private File writeDiskTemp(int zoom, int x, int y, Tile tile) {
+        if (diskCacheDir == null) return null;
+        File file = diskTileFile(zoom, x, y);
+        File temp = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) return null;
+            diskCachedZooms.add(zoom);
+
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(tile.data);
+            } finally {
+                out.close();
+            }
+            return temp;
+        } catch (IOException e) {
+            temp.delete();
+            return null;
+        }
+    }
+
+    private void deleteZoom(int zoom) {
+        diskCachedZooms.remove(zoom);
+        deleteRecursively(new File(diskCacheDir, String.valueOf(zoom)));
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
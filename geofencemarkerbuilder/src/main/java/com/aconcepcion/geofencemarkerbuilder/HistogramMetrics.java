@@ -0,0 +1,79 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link GeofenceMetrics} keeping a lock free latency histogram per timer and the last value of each gauge
+ *
+ * Optionally also emits every timed section as an {@link Trace} section so it shows up in systrace
+ * (API 18 and up, ignored below).
+ */
+public class HistogramMetrics implements GeofenceMetrics {
+
+    private static final Timer[] TIMERS = Timer.values();
+    private static final Gauge[] GAUGES = Gauge.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[TIMERS.length];
+    private final AtomicLongArray gauges = new AtomicLongArray(GAUGES.length);
+    private final boolean isTracing;
+
+    public HistogramMetrics() {
+        this(false);
+    }
+
+    /**
+     * @param isTracing true to also emit android.os.Trace sections
+     */
+    public HistogramMetrics(boolean isTracing) {
+        this.isTracing = isTracing && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public long begin(Timer timer) {
+        if (isTracing) Trace.beginSection(timer.name());
+        return System.nanoTime();
+    }
+
+    @Override
+    public void end(Timer timer, long beginToken) {
+        histograms[timer.ordinal()].record(System.nanoTime() - beginToken);
+        if (isTracing) Trace.endSection();
+    }
+
+    @Override
+    public void gauge(Gauge gauge, long value) {
+        gauges.set(gauge.ordinal(), value);
+    }
+
+    public LatencyHistogram getHistogram(Timer timer) {
+        return histograms[timer.ordinal()];
+    }
+
+    public long getGauge(Gauge gauge) {
+        return gauges.get(gauge.ordinal());
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Timer timer : TIMERS) {
+            builder.append(timer).append(": ").append(histograms[timer.ordinal()]).append('\n');
+        }
+        for (Gauge gauge : GAUGES) {
+            builder.append(gauge).append(": ").append(gauges.get(gauge.ordinal())).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.content.Context;
+
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+/**
+ * Zoom dependent rendering tiers of saved circles
+ *
+ * The on screen radius of a circle decides its tier: circles smaller than {@code dotMinRadiusDp}
+ * are hidden, circles smaller than {@code fullMinRadiusDp} or below {@code fullDetailMinZoom} are
+ * drawn as a single dot marker, and only the remaining ones are shown as full interactive circles.
+ * Switching tiers toggles visibility, map objects are not recreated.
+ *
+ * Must be used from the main thread.
+ */
+class LevelOfDetail {
+
+    public static enum Tier {hidden, dot, full}
+
+    private static final int DOT_SIZE_DP = 8;
+
+    private final Context context;
+    private final MapObjectPool mapObjectPool;
+    private final float fullDetailMinZoom;
+    private final float dotMinRadiusDp;
+    private final float fullMinRadiusDp;
+    private final int dotSizePx;
+
+    LevelOfDetail(Context context, MapObjectPool mapObjectPool, float fullDetailMinZoom, float dotMinRadiusDp, float fullMinRadiusDp) {
+        this.context = context;
+        this.mapObjectPool = mapObjectPool;
+        this.fullDetailMinZoom = fullDetailMinZoom;
+        this.dotMinRadiusDp = dotMinRadiusDp;
+        this.fullMinRadiusDp = fullMinRadiusDp;
+        this.dotSizePx = MetricsUtils.convertDIPsToPixels(context, DOT_SIZE_DP);
+    }
+
+    Tier tierFor(double radiusMeters, double latitude, float zoom) {
+        double radiusDp = radiusMeters / WebMercator.metersPerDp(latitude, zoom);
+        if (radiusDp < dotMinRadiusDp) return Tier.hidden;
+        if (zoom < fullDetailMinZoom || radiusDp < fullMinRadiusDp) return Tier.dot;
+        return Tier.full;
+    }
+
+    void apply(GeofenceCircle geofenceCircle, float zoom) {
+        Tier tier = tierFor(geofenceCircle.getRadius(), geofenceCircle.getLatitude(), zoom);
+        if (tier == geofenceCircle.getTier()) return;
+
+        boolean isFull = tier == Tier.full;
+        Circle circle = geofenceCircle.getMapCircle();
+        if (circle != null) circle.setVisible(isFull);
+        if (geofenceCircle.getCenterMarker() != null) geofenceCircle.getCenterMarker().setVisible(isFull);
+        if (geofenceCircle.getResizerMarker() != null) geofenceCircle.getResizerMarker().setVisible(isFull);
+
+        Marker dotMarker = geofenceCircle.getDotMarker();
+        if (tier == Tier.dot) {
+            if (dotMarker == null) {
+                int color = geofenceCircle.getFillColor() | 0xff000000;
+                geofenceCircle.setDotMarker(mapObjectPool.acquireMarker(new MarkerOptions()
+                        .position(geofenceCircle.getCenter())
+                        .anchor(0.5f, 0.5f)
+                        .flat(true)
+                        .icon(MarkerIconCache.getDotIcon(context, color, dotSizePx))));
+            }
+        } else if (dotMarker != null) {
+            mapObjectPool.release(dotMarker);
+            geofenceCircle.setDotMarker(null);
+        }
+        geofenceCircle.setTier(tier);
+    }
+}
@@ -13,11 +13,9 @@ package com.aconcepcion.geofencemarkerbuilder;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 
 import com.google.android.gms.maps.GoogleMap;
-import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.Circle;
 import com.google.android.gms.maps.model.CircleOptions;
 import com.google.android.gms.maps.model.LatLng;
@@ -66,17 +64,16 @@ public class MapDataPointWrapper {
         this.isEnabled = isEnabled;
         this.count = count;
 
-        centerMarker = map.addMarker(new MarkerOptions()
+        MarkerOptions centerOptions = new MarkerOptions()
                 .position(center)
                 .flat(true)
-                .draggable(isEnabled));
+                .draggable(isEnabled);
 
         if (centerDrawableId != -1) {
-            BitmapDrawable bitmapDrawable = (BitmapDrawable) context.getResources().getDrawable(centerDrawableId);
-            Bitmap bitmap = bitmapDrawable.getBitmap();
-            Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, bitmap.getWidth()/2, bitmap.getHeight()/2, false);
-            centerMarker.setIcon(BitmapDescriptorFactory.fromBitmap(scaledBitmap));
+            centerOptions.icon(MarkerIconCache.getHalfScaledIcon(context, centerDrawableId));
         }
+
+        centerMarker = map.addMarker(centerOptions);
     }
 
     public static Bitmap drawableToBitmap (Drawable drawable) {
@@ -0,0 +1,110 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of hidden markers and circles reused for new geofences
+ *
+ * Adding and removing map objects are round trips to the map renderer. Released objects are hidden
+ * and kept here instead; acquiring one repositions and restyles a pooled object and only adds a new
+ * one when the pool is empty. Objects released above the pool size are removed from the map.
+ *
+ * Pooled markers keep their id, so owners must drop them from any marker id index on release.
+ *
+ * Must be used from the main thread.
+ */
+class MapObjectPool {
+
+    private final GoogleMap map;
+    private final int maxSize;
+
+    private final ArrayList<Marker> markers = new ArrayList<>();
+    private final ArrayList<Circle> circles = new ArrayList<>();
+
+    /**
+     * @param maxSize number of hidden markers and of hidden circles kept, 0 disables pooling
+     */
+    MapObjectPool(GoogleMap map, int maxSize) {
+        this.map = map;
+        this.maxSize = maxSize;
+    }
+
+    Marker acquireMarker(MarkerOptions options) {
+        if (markers.isEmpty()) return map.addMarker(options);
+
+        Marker marker = markers.remove(markers.size() - 1);
+        marker.setPosition(options.getPosition());
+        marker.setAnchor(options.getAnchorU(), options.getAnchorV());
+        marker.setDraggable(options.isDraggable());
+        marker.setFlat(options.isFlat());
+        marker.setIcon(options.getIcon() != null ? options.getIcon() : BitmapDescriptorFactory.defaultMarker());
+        marker.setZIndex(options.getZIndex());
+        marker.setVisible(options.isVisible());
+        return marker;
+    }
+
+    Circle acquireCircle(CircleOptions options) {
+        if (circles.isEmpty()) return map.addCircle(options);
+
+        Circle circle = circles.remove(circles.size() - 1);
+        circle.setCenter(options.getCenter());
+        circle.setRadius(options.getRadius());
+        circle.setStrokeWidth(options.getStrokeWidth());
+        circle.setStrokeColor(options.getStrokeColor());
+        circle.setFillColor(options.getFillColor());
+        circle.setZIndex(options.getZIndex());
+        circle.setVisible(options.isVisible());
+        return circle;
+    }
+
+    void release(Marker marker) {
+        if (markers.size() >= maxSize) {
+            marker.remove();
+            return;
+        }
+        marker.setVisible(false);
+        marker.setTitle(null);
+        marker.setSnippet(null);
+        marker.setTag(null);
+        marker.setAlpha(1f);
+        marker.setRotation(0f);
+        markers.add(marker);
+    }
+
+    void release(Circle circle) {
+        if (circles.size() >= maxSize) {
+            circle.remove();
+            return;
+        }
+        circle.setVisible(false);
+        circles.add(circle);
+    }
+
+    /**
+     * @return number of hidden markers and circles in the pool
+     */
+    int size() {
+        return markers.size() + circles.size();
+    }
+
+    /**
+     * Removes every pooled object from the map
+     */
+    void clear() {
+        for (int i = 0; i < markers.size(); i++) {
+            markers.get(i).remove();
+        }
+        for (int i = 0; i < circles.size(); i++) {
+            circles.get(i).remove();
+        }
+        markers.clear();
+        circles.clear();
+    }
+}
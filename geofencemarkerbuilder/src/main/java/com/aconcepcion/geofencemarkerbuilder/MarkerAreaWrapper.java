@@ -9,11 +9,10 @@ import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.support.v4.content.res.ResourcesCompat;
 
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.Circle;
 import com.google.android.gms.maps.model.CircleOptions;
@@ -95,55 +94,31 @@ public class MarkerAreaWrapper {
 
         this.context = context;
 
-        radiusMarker = map.addMarker(new MarkerOptions()
+        MarkerOptions radiusOptions = new MarkerOptions()
                 .position(MarkerAreasUtils.toRadiusLatLng(center, radiusMeters))
                 .anchor(resizeDrawableAnchorU, resizeDrawableAnchorV)
-                .draggable(isEnabled));
-        radiusMarker.setVisible(isEnabled);
-
-        centerMarker = map.addMarker(new MarkerOptions()
-                .position(center)
-                .flat(true)
-                .anchor(moveDrawableAnchorU, moveDrawableAnchorV)
-                .draggable(isEnabled));
+                .draggable(isEnabled)
+                .visible(isEnabled);
 
         if (radiusDrawableId != 0 && radiusDrawableId != -1) {
-
             int px = context.getResources().getDimensionPixelSize(android.R.dimen.app_icon_size);
-            Bitmap mDotMarkerBitmap = Bitmap.createBitmap(px, px, Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(mDotMarkerBitmap);
-            Drawable shape = ResourcesCompat.getDrawable(context.getResources(), radiusDrawableId, null);
-            shape.setBounds(0, 0, mDotMarkerBitmap.getWidth(), mDotMarkerBitmap.getHeight());
-            shape.draw(canvas);
-
-            radiusMarker.setIcon(BitmapDescriptorFactory.fromBitmap(mDotMarkerBitmap));
+            radiusOptions.icon(MarkerIconCache.getDrawableIcon(context, radiusDrawableId, px));
         }
 
-        if (centerDrawableId != -1) {
-            BitmapDrawable bitmapDrawable = (BitmapDrawable) context.getResources().getDrawable(centerDrawableId);
-            Bitmap bitmap = bitmapDrawable.getBitmap();
-            Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, (int)(bitmap.getWidth() / 2), (int)(bitmap.getHeight() / 2), false);
-            //            centerMarker.setIcon(BitmapDescriptorFactory.fromBitmap(scaledBitmap));
-
-            int imageSize = (MetricsUtils.convertDIPsToPixels(context, 30f));
-
-            if (childProfileImage == null) {
-                if(childBitmap == null) {
-                    childProfileImage = Bitmap.createBitmap(imageSize, imageSize, Bitmap.Config.ARGB_8888);
-                    Drawable drawable = context.getResources().getDrawable(android.R.drawable.sym_contact_card);
-                    Canvas canvas = new Canvas(childProfileImage);
-                    drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-                    drawable.draw(canvas);
-                    childBitmap = childProfileImage;
-                } else {
-                    childProfileImage = childBitmap;
-                }
+        radiusMarker = map.addMarker(radiusOptions);
 
-            }
+        MarkerOptions centerOptions = new MarkerOptions()
+                .position(center)
+                .flat(true)
+                .anchor(moveDrawableAnchorU, moveDrawableAnchorV)
+                .draggable(isEnabled);
 
-            centerMarker.setIcon(BitmapDescriptorFactory.fromBitmap(overlay(scaledBitmap, getRoundedCornerBitmap(childProfileImage, imageSize))));
+        if (centerDrawableId != -1) {
+            centerOptions.icon(getCenterIcon(centerDrawableId, childProfileImage));
         }
 
+        centerMarker = map.addMarker(centerOptions);
+
         circle = map.addCircle(new CircleOptions()
                 .center(center)
                 .radius(radiusMeters)
@@ -152,6 +127,37 @@ public class MarkerAreaWrapper {
                 .fillColor(fillColor));
     }
 
+    /**
+     * Center icon is the scaled center drawable overlaid with the child profile image.
+     * When no profile image is given every wrapper shows the same default, so the composed icon is shared.
+     */
+    private BitmapDescriptor getCenterIcon(int centerDrawableId, Bitmap childProfileImage) {
+        int imageSize = (MetricsUtils.convertDIPsToPixels(context, 30f));
+        String key = null;
+
+        if (childProfileImage == null) {
+            key = MarkerIconCache.key(context, "geofenceCenter", centerDrawableId, imageSize);
+            BitmapDescriptor descriptor = MarkerIconCache.get(key);
+            if (descriptor != null) return descriptor;
+
+            if(childBitmap == null) {
+                childProfileImage = Bitmap.createBitmap(imageSize, imageSize, Bitmap.Config.ARGB_8888);
+                Drawable drawable = context.getResources().getDrawable(android.R.drawable.sym_contact_card);
+                Canvas canvas = new Canvas(childProfileImage);
+                drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
+                drawable.draw(canvas);
+                childBitmap = childProfileImage;
+            } else {
+                childProfileImage = childBitmap;
+            }
+        }
+
+        Bitmap scaledBitmap = MarkerIconCache.getHalfScaledBitmap(context, centerDrawableId);
+        Bitmap centerIcon = overlay(scaledBitmap, getRoundedCornerBitmap(childProfileImage, imageSize));
+        if (key != null) return MarkerIconCache.put(key, centerIcon);
+        return BitmapDescriptorFactory.fromBitmap(centerIcon);
+    }
+
     public static Bitmap getRoundedCornerBitmap(Bitmap bitmap, int pixels) {
         Bitmap output = Bitmap.createBitmap(pixels, pixels, Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(output);
@@ -192,17 +198,16 @@ public class MarkerAreaWrapper {
         this.shouldExpand = shouldExpand;
         this.locationData = locationData;
 
-        centerMarker = map.addMarker(new MarkerOptions()
+        MarkerOptions centerOptions = new MarkerOptions()
                 .position(center)
                 .flat(true)
-                .draggable(isEnabled));
+                .draggable(isEnabled);
 
         if (centerDrawableId != -1) {
-            BitmapDrawable bitmapDrawable = (BitmapDrawable) context.getResources().getDrawable(centerDrawableId);
-            Bitmap bitmap = bitmapDrawable.getBitmap();
-            Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, bitmap.getWidth()/2, bitmap.getHeight()/2, false);
-            centerMarker.setIcon(BitmapDescriptorFactory.fromBitmap(scaledBitmap));
+            centerOptions.icon(MarkerIconCache.getHalfScaledIcon(context, centerDrawableId));
         }
+
+        centerMarker = map.addMarker(centerOptions);
     }
 
     public static Bitmap drawableToBitmap (Drawable drawable) {
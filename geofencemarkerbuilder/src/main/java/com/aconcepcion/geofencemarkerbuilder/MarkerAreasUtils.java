@@ -1,7 +1,5 @@
 package com.aconcepcion.geofencemarkerbuilder;
 
-import android.location.Location;
-
 import com.google.android.gms.maps.model.LatLng;
 
 /**
@@ -12,13 +10,29 @@ import com.google.android.gms.maps.model.LatLng;
 public class MarkerAreasUtils {
 
     public static LatLng toRadiusLatLng(LatLng center, double radius) {
-        double radiusAngle = Math.toDegrees(radius / MarkerAreasConstants.RADIUS_OF_EARTH_METERS) / Math.cos(Math.toRadians(center.latitude));
-        return new LatLng(center.latitude, center.longitude + radiusAngle);
+        return new LatLng(center.latitude, toRadiusLongitude(center.latitude, center.longitude, radius));
+    }
+
+    /**
+     * Primitive variant of {@link #toRadiusLatLng(LatLng, double)}
+     *
+     * @return longitude of the point lying east of the center at the given radius, on the center's latitude
+     */
+    public static double toRadiusLongitude(double centerLatitude, double centerLongitude, double radius) {
+        return GeoDistance.radiusLongitude(centerLatitude, centerLongitude, radius);
     }
 
+    /**
+     * @return ellipsoidal distance between the points in meters, same as android.location.Location.distanceBetween
+     */
     public static double toRadiusMeters(LatLng center, LatLng radius) {
-        float[] result = new float[1];
-        Location.distanceBetween(center.latitude, center.longitude, radius.latitude, radius.longitude, result);
-        return result[0];
+        return GeoDistance.ellipsoidal(center.latitude, center.longitude, radius.latitude, radius.longitude);
+    }
+
+    /**
+     * @return distance between the points in meters computed with the given precision tier
+     */
+    public static double toRadiusMeters(GeoDistance.Precision precision, LatLng center, LatLng radius) {
+        return GeoDistance.distance(precision, center.latitude, center.longitude, radius.latitude, radius.longitude);
     }
 }
@@ -2,61 +2,139 @@ package com.aconcepcion.geofencemarkerbuilder;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.Color;
 import android.graphics.Point;
+import android.os.AsyncTask;
 
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.Projection;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.functions.Func1;
+import rx.subjects.PublishSubject;
 
 /**
  * Created by andrewconcepcion on 4/28/15.
  */
-public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener, GoogleMap.OnMarkerDragListener, GoogleMap.OnMapLongClickListener, GoogleMap.OnMapClickListener {
+public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener, GoogleMap.OnMarkerDragListener, GoogleMap.OnMapLongClickListener, GoogleMap.OnMapClickListener, GoogleMap.OnCameraIdleListener, GoogleMap.OnCameraMoveListener {
 
     private final Context context;
     private final GoogleMap googleMap;
     private final boolean isEnabled;
     private final double radius;
     private final long circleId;
-    private final float strokeWidth;
-    private final int strokeColor;
-    private final int fillColor;
+    private final GeofenceStyle style;
     private final int minRadius;
     private final int maxRadius;
-    private final int centerIcon;
-    private final Bitmap centerBitmap;
-    private final int resizerIcon;
-    private final float centerOffsetHorizontal;
-    private final float centerOffsetVertical;
     private final CircleManagerListener circleManagerListener;
+    private final PolygonManagerListener polygonManagerListener;
+    private final OverlapListener overlapListener;
+    private PublishSubject<CircleEvent> eventSubject;
+    private final DragFrameScheduler dragFrameScheduler;
+    private final BatchPlotter batchPlotter;
+    private final ViewportVirtualizer viewportVirtualizer;
+    private final MapObjectPool mapObjectPool;
+    private final Executor buildExecutor;
+    private final GeofenceMetrics metrics;
+    private final LevelOfDetail levelOfDetail;
+    private float cameraZoom = -1;
+    private final ProjectionCache projectionCache;
+    private final int clusterCellSizeDp;
+    private PointClusterer pointClusterer;
+    private boolean isCameraIdleListenerSet;
+
+    /**
+     * Min and max radius are hit on every drag tick while the resizer is past the limit
+     */
+    private static final long LIMIT_EVENT_THROTTLE_MILLIS = 500;
 
     private List<GeofenceCircle> areas = new ArrayList<>(1);
-    private List<GeofenceCircle> savedPoints = new ArrayList<>(1);
+    /**
+     * Saved circles keyed by geofence id, in insertion order
+     */
+    private LinkedHashMap<Long, GeofenceCircle> savedPoints = new LinkedHashMap<>();
     private List<GeofenceCircle> savedDataPoints = new ArrayList<>(1);
 
+    /**
+     * Primitive column store backing every circle created by this manager
+     */
+    private final GeofenceStore<GeofenceStyle> store = new GeofenceStore<>();
+
+    /**
+     * Replacement of every style moved by {@link #restyle(GeofenceStyle, GeofenceStyle)}, applied to new circles
+     */
+    private final HashMap<GeofenceStyle, GeofenceStyle> restyles = new HashMap<>();
+
+    /**
+     * Routes the events of every live center, resizer and polygon vertex marker to its owner
+     */
+    private final MarkerRouter<Marker> markerRouter = new MarkerRouter<>();
+
+    /**
+     * Roles of circle markers in the {@link #markerRouter}, polygon vertex markers use the vertex index
+     */
+    private static final int ROLE_CENTER = 0;
+    private static final int ROLE_RESIZER = 1;
+
+    /**
+     * Spatial index over the center and radius of every circle on the map
+     */
+    private final GeofenceGridIndex<GeofenceCircle> spatialIndex = new GeofenceGridIndex<>();
+
+    /**
+     * Polygons keyed by geofence id, in insertion order
+     */
+    private LinkedHashMap<Long, GeofencePolygon> polygons = new LinkedHashMap<>();
+
+    /**
+     * Spatial index over the bounding circle of every polygon, narrows containment tests to nearby polygons
+     */
+    private final GeofenceGridIndex<GeofencePolygon> polygonIndex = new GeofenceGridIndex<>();
+
+    /**
+     * Marker callbacks are delivered on the main thread, so a single result holder is reused for all of them
+     */
+    private final MarkerMoveResultWithCircle markerMoveResult = new MarkerMoveResultWithCircle(GeofenceCircle.MarkerMoveResult.none, null);
+
     public static class Builder {
         private Context context;
         private GoogleMap googleMap;
         private boolean isEnabled;
         private double radius = 0;
         private long circleId;
-        private int fillColor = Color.HSVToColor(70, new float[]{1, 1, 200});
-        private float strokeWidth = 4f;
-        private int strokeColor = Color.RED;
         private int minRadius = -1;
         private int maxRadius = -1;
-        private int centerIcon = android.R.drawable.ic_menu_mylocation;
-        private int resizerIcon = android.R.drawable.ic_menu_mylocation;
-        private Bitmap centerBitmap;
-        private float centerOffsetHorizontal = 0.5f;
-        private float centerOffsetVertical = 0.5f;
-        private float resizerOffsetHorizontal = 0.5f;
-        private float resizerOffsetVertical = 0.5f;
+        private GeofenceStyle.Builder styleBuilder = new GeofenceStyle.Builder();
+        private GeofenceStyle style;
         private CircleManagerListener circleManagerListener;
+        private PolygonManagerListener polygonManagerListener;
+        private OverlapListener overlapListener;
+        private boolean isFrameAligned = true;
+        private long plotFrameBudgetMillis = 8;
+        private float viewportMargin = 0.25f;
+        private int clusterCellSizeDp = PointClusterer.DEFAULT_CELL_SIZE_DP;
+        private int mapObjectPoolSize = 32;
+        private Executor buildExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+        private GeofenceMetrics metrics = GeofenceMetrics.NONE;
+        private boolean isLevelOfDetailEnabled;
+        private float fullDetailMinZoom = 10;
+        private float dotMinRadiusDp = 0.5f;
+        private float fullMinRadiusDp = 6;
+        private boolean isProjectionCached;
 
         public Builder(Context context) {
             this.context = context;
@@ -72,6 +150,20 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
             return this;
         }
 
+        public Builder polygonListener(PolygonManagerListener polygonManagerListener) {
+            this.polygonManagerListener = polygonManagerListener;
+            return this;
+        }
+
+        /**
+         * Notified with the circles overlapping a circle after it was created, moved or resized.
+         * Only the neighbours of that circle are checked.
+         */
+        public Builder overlapListener(OverlapListener overlapListener) {
+            this.overlapListener = overlapListener;
+            return this;
+        }
+
         public Builder enabled(boolean isEnabled) {
             this.isEnabled = isEnabled;
             return this;
@@ -88,17 +180,17 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
         }
 
         public Builder strokeWidth(float strokeWidth) {
-            this.strokeWidth = strokeWidth;
+            styleBuilder().strokeWidth(strokeWidth);
             return this;
         }
 
         public Builder strokeColor(int strokeColor) {
-            this.strokeColor = strokeColor;
+            styleBuilder().strokeColor(strokeColor);
             return this;
         }
 
         public Builder fillColor(int fillColor) {
-            this.fillColor = fillColor;
+            styleBuilder().fillColor(fillColor);
             return this;
         }
 
@@ -113,39 +205,152 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
         }
 
         public Builder centerIcon(int centerIcon) {
-            this.centerIcon = centerIcon;
+            styleBuilder().centerIcon(centerIcon);
             return this;
         }
 
         public Builder centerBitmap(Bitmap centerBitmap) {
-            this.centerBitmap = centerBitmap;
+            styleBuilder().centerBitmap(centerBitmap);
             return this;
         }
 
         public Builder resizerIcon(int resizerIcon) {
-            this.resizerIcon = resizerIcon;
+            styleBuilder().resizerIcon(resizerIcon);
             return this;
         }
 
         public Builder centerOffsetHorizontal(float centerOffsetHorizontal) {
-            this.centerOffsetHorizontal = centerOffsetHorizontal;
+            styleBuilder().centerOffsetHorizontal(centerOffsetHorizontal);
             return this;
         }
 
         public Builder centerOffsetVertical(float centerOffsetVertical) {
-            this.centerOffsetVertical = centerOffsetVertical;
+            styleBuilder().centerOffsetVertical(centerOffsetVertical);
             return this;
         }
 
         public Builder resizerOffsetHorizontal(float resizerOffsetHorizontal) {
-            this.resizerOffsetHorizontal = resizerOffsetHorizontal;
+            styleBuilder().resizerOffsetHorizontal(resizerOffsetHorizontal);
             return this;
         }
 
         public Builder resizerOffsetVertical(float resizerOffsetVertical) {
-            this.resizerOffsetVertical = resizerOffsetVertical;
+            styleBuilder().resizerOffsetVertical(resizerOffsetVertical);
+            return this;
+        }
+
+        /**
+         * Default style of new circles, individual style options set afterwards apply on top of it
+         */
+        public Builder style(GeofenceStyle style) {
+            this.style = style;
+            this.styleBuilder = style == null ? new GeofenceStyle.Builder() : null;
+            return this;
+        }
+
+        private GeofenceStyle.Builder styleBuilder() {
+            if (styleBuilder == null) styleBuilder = new GeofenceStyle.Builder(style);
+            style = null;
+            return styleBuilder;
+        }
+
+        /**
+         * When enabled (default), circle and resizer updates produced by drag events are coalesced
+         * and pushed to the map once per display frame instead of on every drag callback
+         */
+        public Builder frameAligned(boolean isFrameAligned) {
+            this.isFrameAligned = isFrameAligned;
+            return this;
+        }
+
+        /**
+         * Time each frame may spend creating circles for {@link #plotPoints(Collection, boolean, PlotProgressListener)},
+         * at least one circle is created per frame
+         */
+        public Builder plotFrameBudgetMillis(long plotFrameBudgetMillis) {
+            this.plotFrameBudgetMillis = plotFrameBudgetMillis;
+            return this;
+        }
+
+        /**
+         * Fraction of the visible span added on each side of the viewport when deciding which
+         * virtual points get map objects, see {@link #addVirtualPoints(Collection)}
+         */
+        public Builder viewportMargin(float viewportMargin) {
+            this.viewportMargin = viewportMargin;
+            return this;
+        }
+
+        /**
+         * On screen size of the grid cells used by {@link #clusterDataPoints(List, List)},
+         * data points closer than this are merged into one cluster marker
+         */
+        public Builder clusterCellSizeDp(int clusterCellSizeDp) {
+            this.clusterCellSizeDp = clusterCellSizeDp;
+            return this;
+        }
+
+        /**
+         * Number of hidden markers and circles kept for reuse when circles are cleared or leave the
+         * viewport, 0 removes them from the map instead
+         */
+        public Builder mapObjectPoolSize(int mapObjectPoolSize) {
+            this.mapObjectPoolSize = mapObjectPoolSize;
+            return this;
+        }
+
+        /**
+         * Executor preparing icons and geometry for {@link #addSavedPointAsync(LatLng, double, long, int, GeofenceCircle.OnCircleBuiltListener)},
+         * AsyncTask.THREAD_POOL_EXECUTOR by default
+         */
+        public Builder buildExecutor(Executor buildExecutor) {
+            this.buildExecutor = buildExecutor;
+            return this;
+        }
+
+        /**
+         * Receives hot path timings and object counts, see {@link HistogramMetrics}. No-op by default.
+         */
+        public Builder metrics(GeofenceMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * When enabled, saved circles are drawn by zoom: hidden when smaller than
+         * {@link #dotMinRadiusDp(float)} on screen, as a dot marker when smaller than
+         * {@link #fullMinRadiusDp(float)} or below {@link #fullDetailMinZoom(float)}, and as full
+         * interactive circles otherwise. Tiers are updated when the camera becomes idle.
+         */
+        public Builder levelOfDetail(boolean isLevelOfDetailEnabled) {
+            this.isLevelOfDetailEnabled = isLevelOfDetailEnabled;
+            return this;
+        }
+
+        public Builder fullDetailMinZoom(float fullDetailMinZoom) {
+            this.fullDetailMinZoom = fullDetailMinZoom;
             return this;
         }
+
+        public Builder dotMinRadiusDp(float dotMinRadiusDp) {
+            this.dotMinRadiusDp = dotMinRadiusDp;
+            return this;
+        }
+
+        public Builder fullMinRadiusDp(float fullMinRadiusDp) {
+            this.fullMinRadiusDp = fullMinRadiusDp;
+            return this;
+        }
+
+        /**
+         * Converts between screen and map coordinates from the camera position instead of fetching a
+         * projection from the Maps service for every conversion. Registers camera move and idle listeners.
+         */
+        public Builder cacheProjection(boolean isProjectionCached) {
+            this.isProjectionCached = isProjectionCached;
+            return this;
+        }
+
         public MarkerBuilderManagerV2 build(){
             return new MarkerBuilderManagerV2(this);
         }
@@ -155,52 +360,74 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
         this.context                =   b.context;
         this.googleMap              =   b.googleMap;
         this.circleManagerListener  =   b.circleManagerListener;
+        this.polygonManagerListener =   b.polygonManagerListener;
+        this.overlapListener        =   b.overlapListener;
         this.isEnabled              =   b.isEnabled;
         this.radius                 =   b.radius;
         this.circleId               =   b.circleId;
-        this.strokeWidth            =   b.strokeWidth;
-        this.strokeColor            =   b.strokeColor;
-        this.fillColor              =   b.fillColor;
+        this.style                  =   b.style != null ? b.style : b.styleBuilder.build();
         this.minRadius              =   b.minRadius;
         this.maxRadius              =   b.maxRadius;
-        this.centerIcon             =   b.centerIcon;
-        this.centerBitmap           =   b.centerBitmap;
-        this.resizerIcon            =   b.resizerIcon;
-        this.centerOffsetHorizontal =   b.centerOffsetHorizontal;
-        this.centerOffsetVertical   =   b.centerOffsetVertical;
+        this.dragFrameScheduler     =   b.isFrameAligned ? new DragFrameScheduler() : null;
+        this.batchPlotter           =   new BatchPlotter(this, b.plotFrameBudgetMillis * 1000000L);
+        this.viewportVirtualizer    =   new ViewportVirtualizer(this, b.viewportMargin);
+        this.clusterCellSizeDp      =   b.clusterCellSizeDp;
+        this.mapObjectPool          =   new MapObjectPool(b.googleMap, b.mapObjectPoolSize);
+        this.buildExecutor          =   b.buildExecutor;
+        this.metrics                =   b.metrics;
+        this.levelOfDetail          =   b.isLevelOfDetailEnabled
+                ? new LevelOfDetail(b.context, mapObjectPool, b.fullDetailMinZoom, b.dotMinRadiusDp, b.fullMinRadiusDp)
+                : null;
+        this.projectionCache        =   b.isProjectionCached ? new ProjectionCache(b.context, b.googleMap) : null;
 
         googleMap.setOnMarkerDragListener(this);
         googleMap.setOnMapLongClickListener(this);
         googleMap.setOnMapClickListener(this);
         googleMap.setOnMarkerClickListener(this);
+        if (projectionCache != null) googleMap.setOnCameraMoveListener(this);
+        if (levelOfDetail != null || projectionCache != null) listenToCameraIdle();
     }
 
     /**
-     * When marker is moved, notify circles
-     * The circle containing the marker will execute necessary actions
+     * When marker is moved, notify the circle owning it
+     * The owning circle is resolved through the marker index and will execute necessary actions
      *
      * @param marker
-     * @return
+     * @return shared result holder, only valid until the next marker event
      */
-    private MarkerMoveResultWithCircle onMarkerMoved(Marker marker) {
+    private MarkerMoveResultWithCircle onMarkerMoved(GeofenceCircle affectedDraggableCircle,
+                                                     GeofenceCircle.MarkerType markerType, Marker marker) {
         GeofenceCircle.MarkerMoveResult result = GeofenceCircle.MarkerMoveResult.none;
-        GeofenceCircle affectedDraggableCircle = null;
-
-        ArrayList<GeofenceCircle> allMarkers = new ArrayList<>();
-        allMarkers.addAll(areas);
-        allMarkers.addAll(savedPoints);
-        allMarkers.addAll(savedDataPoints);
-
-        for(int i = 0; i < allMarkers.size(); i++) {
-            GeofenceCircle draggableCircle = allMarkers.get(i);
-            result = draggableCircle.onMarkerMoved(marker);
-            if (result != GeofenceCircle.MarkerMoveResult.none) {
-                affectedDraggableCircle = draggableCircle;
-                break;
+
+        if (affectedDraggableCircle != null) {
+            result = affectedDraggableCircle.onMarkerMoved(markerType, marker);
+            if (result == GeofenceCircle.MarkerMoveResult.none) affectedDraggableCircle = null;
+            if (result == GeofenceCircle.MarkerMoveResult.moved || result == GeofenceCircle.MarkerMoveResult.radiusChange) {
+                index(affectedDraggableCircle);
             }
         }
 
-        return new MarkerMoveResultWithCircle(result, affectedDraggableCircle);
+        return markerMoveResult.set(result, affectedDraggableCircle);
+    }
+
+    private void index(GeofenceCircle geofenceCircle) {
+        spatialIndex.put(geofenceCircle, geofenceCircle.getLatitude(), geofenceCircle.getLongitude(), geofenceCircle.getRadius());
+    }
+
+    private void indexMarkers(GeofenceCircle geofenceCircle) {
+        if (geofenceCircle.getCenterMarker() != null) markerRouter.put(geofenceCircle.getCenterMarker().getId(), geofenceCircle, ROLE_CENTER, circleMarkerHandler);
+        if (geofenceCircle.getResizerMarker() != null) markerRouter.put(geofenceCircle.getResizerMarker().getId(), geofenceCircle, ROLE_RESIZER, circleMarkerHandler);
+    }
+
+    private void unindexMarkers(GeofencePolygon polygon) {
+        for (Marker vertexMarker : polygon.getVertexMarkers()) {
+            markerRouter.remove(vertexMarker.getId());
+        }
+    }
+
+    private void unindexMarkers(GeofenceCircle geofenceCircle) {
+        if (geofenceCircle.getCenterMarker() != null) markerRouter.remove(geofenceCircle.getCenterMarker().getId());
+        if (geofenceCircle.getResizerMarker() != null) markerRouter.remove(geofenceCircle.getResizerMarker().getId());
     }
 
     /**
@@ -209,75 +436,110 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
     public void clearCircles() {
 
         for(int i = 0; i < areas.size(); i++) {
-            getCircles().get(i).removeArea();
+            GeofenceCircle oldCircle = getCircles().get(i);
+            unindexMarkers(oldCircle);
+            spatialIndex.remove(oldCircle);
+            oldCircle.removeArea();
         }
+        areas.clear();
     }
 
-    public void removeCircle(long geofenceCircleId) {
-
-        for(int i = 0; i < savedPoints.size(); i++) {
+    /**
+     * Removes the saved circle with the given id from the map
+     *
+     * @return false when there is no saved circle with that id
+     */
+    public boolean removeCircle(long geofenceCircleId) {
+        GeofenceCircle savedCircle = savedPoints.remove(geofenceCircleId);
+        if (savedCircle == null) return false;
 
-            GeofenceCircle savedCircle = savedPoints.get(i);
-            if(savedCircle.getCircleId() == geofenceCircleId){
-                savedCircle.removeArea();
-                break;
-            }
-        }
+        unindexMarkers(savedCircle);
+        spatialIndex.remove(savedCircle);
+        savedCircle.removeArea();
+        return true;
     }
 
     public void clearSavedCircles() {
 
-        for(int i = 0; i < savedPoints.size(); i++) {
-            GeofenceCircle oldCircle = savedPoints.get(i);
+        for(GeofenceCircle oldCircle : savedPoints.values()) {
+            unindexMarkers(oldCircle);
+            spatialIndex.remove(oldCircle);
             oldCircle.removeArea();
         }
         savedPoints.clear();
+        viewportVirtualizer.onCirclesDetached();
     }
 
     public void markThis(LatLng point, boolean isSaved) {
+        long begin = metrics.begin(GeofenceMetrics.Timer.markThis);
+        GeofenceCircle geofenceCircle;
+        try {
+            clearCircles();
+            double initRadiusMetersFinal;
 
-        clearCircles();
-        double initRadiusMetersFinal;
+            if(radius == 0) {
+                LatLng radiusLatLng;
+                if (projectionCache != null) {
+                    Point screenCenterPoint = projectionCache.toScreenLocation(point);
+                    radiusLatLng = projectionCache.fromScreenLocation(new Point(screenCenterPoint.x + (int)radius, screenCenterPoint.y));
+                } else {
+                    Projection projection = googleMap.getProjection();
+                    Point screenCenterPoint = projection.toScreenLocation(point);
+                    radiusLatLng = projection.fromScreenLocation(new Point(screenCenterPoint.x + (int)radius, screenCenterPoint.y));
+                }
+                initRadiusMetersFinal = MarkerAreasUtils.toRadiusMeters(point, radiusLatLng);
+            } else {
+                initRadiusMetersFinal = radius;
+            }
 
-        if(radius == 0) {
-            Point screenCenterPoint = googleMap.getProjection().toScreenLocation(point);
-            LatLng radiusLatLng = googleMap.getProjection().fromScreenLocation(new Point(screenCenterPoint.x + (int)radius, screenCenterPoint.y));
-            initRadiusMetersFinal = MarkerAreasUtils.toRadiusMeters(point, radiusLatLng);
-        } else {
-            initRadiusMetersFinal = radius;
-        }
+            geofenceCircle = newCircleBuilder(point, initRadiusMetersFinal, circleId, style.getFillColor()).build();
 
-        GeofenceCircle geofenceCircle = new GeofenceCircle.Builder(context)
-                .map(googleMap)
-                .enabled(isEnabled)
-                .radius(initRadiusMetersFinal)
-                .circleId(circleId)
-                .strokeWidth(strokeWidth)
-                .strokeColor(strokeColor)
-                .fillColor(fillColor)
-                .minRadius(minRadius)
-                .maxRadius(maxRadius)
-                .centerIcon(centerIcon)
-                .centerBitmap(centerBitmap)
-                .resizerIcon(resizerIcon)
-                .centerOffsetHorizontal(centerOffsetHorizontal)
-                .centerOffsetVertical(centerOffsetVertical)
-                .center(point)
-                .build();
-
-        if(!isSaved) {
-            areas.add(geofenceCircle);
-        } else {
-            savedPoints.add(geofenceCircle);
+            if(!isSaved) {
+                areas.add(geofenceCircle);
+            } else {
+                // saved circles are keyed by id, a marked circle replaces the saved one with the same id
+                removeCircle(circleId);
+                savedPoints.put(circleId, geofenceCircle);
+            }
+            indexMarkers(geofenceCircle);
+            index(geofenceCircle);
+        } finally {
+            metrics.end(GeofenceMetrics.Timer.markThis, begin);
         }
 
+        publish(CircleEvent.Type.create, geofenceCircle);
         if(circleManagerListener != null) circleManagerListener.onCreateCircle(geofenceCircle);
+        if(overlapListener != null) overlapListener.onOverlapChanged(geofenceCircle, overlapping(geofenceCircle));
     }
 
     public void plotPoints(LatLng point, Integer radius, long circularGeofenceId, int fillColor) {
         GeofenceCircle circle = addSavedPoint(point, radius, circularGeofenceId, fillColor);
-        if(circleManagerListener != null) circleManagerListener.onInitCreateCircle(circle);
+        notifyInitCreateCircle(circle);
+
+    }
+
+    /**
+     * Plots many saved points, spreading circle creation over frames within the plot frame budget
+     *
+     * @param geofenceSpecs saved points returned by the server
+     * @param notifyEachCircle true to call {@link CircleManagerListener#onInitCreateCircle(GeofenceCircle)} for every circle,
+     *                         false to only report the whole batch through {@link PlotProgressListener#onPlotComplete(List)}
+     * @param plotProgressListener optional progress listener
+     */
+    public void plotPoints(Collection<GeofenceSpec> geofenceSpecs, boolean notifyEachCircle, PlotProgressListener plotProgressListener) {
+        batchPlotter.enqueue(geofenceSpecs, notifyEachCircle, plotProgressListener);
+    }
 
+    /**
+     * Stops plotting queued batches, circles already plotted stay on the map
+     */
+    public void cancelPlotting() {
+        batchPlotter.cancel();
+    }
+
+    void notifyInitCreateCircle(GeofenceCircle circle) {
+        publish(CircleEvent.Type.initCreate, circle);
+        if(circleManagerListener != null) circleManagerListener.onInitCreateCircle(circle);
     }
 
     /**
@@ -286,34 +548,698 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
      * @param savedPoint a successfully saved point returned by the server
      */
     public GeofenceCircle addSavedPoint(LatLng savedPoint, Integer radius, long geofenceCircleId, int fillColor) {
+        return addSavedPoint(savedPoint, radius.doubleValue(), geofenceCircleId, fillColor);
+    }
+
+    /**
+     * adds a point to non clearable circle
+     * When a saved circle with the same id exists it is updated in place instead,
+     * a virtual point with the same id is replaced
+     *
+     * @param savedPoint a successfully saved point returned by the server
+     */
+    public GeofenceCircle addSavedPoint(LatLng savedPoint, double radius, long geofenceCircleId, int fillColor) {
+
+        GeofenceCircle savedCircle = plottedCircle(geofenceCircleId);
+        if (savedCircle != null) {
+            updateSavedCircle(savedCircle, savedPoint, radius, fillColor);
+            return savedCircle;
+        }
+
+        GeofenceCircle circle = newCircleBuilder(savedPoint, radius, geofenceCircleId, fillColor).build();
+        registerSavedCircle(circle);
+        return circle;
+    }
+
+    /**
+     * Async variant of {@link #addSavedPoint(LatLng, double, long, int)}: icons and geometry are
+     * prepared on the build executor and the circle is added to the map on the main thread.
+     * When a saved circle with the same id exists it is updated in place instead,
+     * a virtual point with the same id is replaced.
+     *
+     * @param onCircleBuiltListener optional, called on the main thread once the circle is on the map
+     *                              or when building it failed
+     */
+    public void addSavedPointAsync(LatLng savedPoint, double radius, long geofenceCircleId, int fillColor,
+                                   final GeofenceCircle.OnCircleBuiltListener onCircleBuiltListener) {
+
+        GeofenceCircle savedCircle = plottedCircle(geofenceCircleId);
+        if (savedCircle != null) {
+            updateSavedCircle(savedCircle, savedPoint, radius, fillColor);
+            if (onCircleBuiltListener != null) onCircleBuiltListener.onCircleBuilt(savedCircle);
+            return;
+        }
+
+        newCircleBuilder(savedPoint, radius, geofenceCircleId, fillColor).buildAsync(buildExecutor, new GeofenceCircle.OnCircleBuiltListener() {
+            @Override
+            public void onCircleBuilt(GeofenceCircle geofenceCircle) {
+                // a circle with the same id may have been added meanwhile, the latest one wins
+                removeCircle(geofenceCircle.getCircleId());
+                registerSavedCircle(geofenceCircle);
+                if (onCircleBuiltListener != null) onCircleBuiltListener.onCircleBuilt(geofenceCircle);
+            }
 
-        GeofenceCircle circle = new GeofenceCircle.Builder(context)
+            @Override
+            public void onCircleBuildFailed(Throwable error) {
+                if (onCircleBuiltListener != null) onCircleBuiltListener.onCircleBuildFailed(error);
+            }
+        });
+    }
+
+    private GeofenceCircle.Builder newCircleBuilder(LatLng center, double radius, long geofenceCircleId, int fillColor) {
+        return newCircleBuilder(center, radius, geofenceCircleId, styleFor(fillColor), minRadius, maxRadius);
+    }
+
+    private GeofenceCircle.Builder newCircleBuilder(LatLng center, double radius, long geofenceCircleId,
+                                                    GeofenceStyle circleStyle, int minRadius, int maxRadius) {
+        return new GeofenceCircle.Builder(context)
                 .map(googleMap)
                 .enabled(isEnabled)
                 .radius(radius)
-                .circleId(circleId)
-                .circleId(circleId)
-                .strokeWidth(strokeWidth)
-                .strokeColor(strokeColor)
-                .fillColor(fillColor)
+                .circleId(geofenceCircleId)
+                .style(circleStyle)
                 .minRadius(minRadius)
                 .maxRadius(maxRadius)
-                .centerIcon(centerIcon)
-                .centerBitmap(centerBitmap)
-                .resizerIcon(resizerIcon)
-                .centerOffsetHorizontal(centerOffsetHorizontal)
-                .centerOffsetVertical(centerOffsetVertical)
-                .center(savedPoint)
-                .build();
+                .center(center)
+                .dragFrameScheduler(dragFrameScheduler)
+                .store(store)
+                .mapObjectPool(mapObjectPool)
+                .metrics(metrics);
+    }
+
+    /**
+     * @return default style with the fill color, after the substitutions made by {@link #restyle(GeofenceStyle, GeofenceStyle)}
+     */
+    private GeofenceStyle styleFor(int fillColor) {
+        GeofenceStyle fillStyle = style.withFillColor(fillColor);
+        GeofenceStyle restyled = restyles.get(fillStyle);
+        return restyled != null ? restyled : fillStyle;
+    }
+
+    /**
+     * @return {@link #styleFor(int)} with the stroke replaced, e.g. by the one a point was saved with
+     */
+    GeofenceStyle styleFor(int fillColor, int strokeColor, float strokeWidth) {
+        GeofenceStyle fillStyle = styleFor(fillColor);
+        if (fillStyle.getStrokeColor() == strokeColor && fillStyle.getStrokeWidth() == strokeWidth) return fillStyle;
+        return new GeofenceStyle.Builder(fillStyle).strokeColor(strokeColor).strokeWidth(strokeWidth).build();
+    }
+
+    GeofenceStyle getStyle() {
+        return style;
+    }
+
+    int getMinRadius() {
+        return minRadius;
+    }
 
-        savedPoints.add(circle);
+    int getMaxRadius() {
+        return maxRadius;
+    }
+
+    /**
+     * Moves every circle drawn with a style to another style in a single pass. Circles are matched by
+     * their style table index and only the properties that differ are pushed to the map objects.
+     * Circles created later with the old style get the new one.
+     *
+     * @return number of circles restyled
+     */
+    public int restyle(GeofenceStyle from, GeofenceStyle to) {
+        if (from.equals(to)) return 0;
+
+        for (Map.Entry<GeofenceStyle, GeofenceStyle> restyle : restyles.entrySet()) {
+            if (restyle.getValue().equals(from)) restyle.setValue(to);
+        }
+        restyles.put(from, to);
+        restyles.remove(to);
+
+        int fromIndex = store.indexOfStyle(from);
+        if (fromIndex == -1) return 0;
+        int toIndex = store.internStyle(to);
+        BitmapDescriptor resizerIconDescriptor = from.getResizerIcon() != to.getResizerIcon()
+                ? GeofenceCircle.resizerIconDescriptor(context, to)
+                : null;
+
+        int count = 0;
+        count += restyle(areas, fromIndex, toIndex, resizerIconDescriptor);
+        count += restyle(savedPoints.values(), fromIndex, toIndex, resizerIconDescriptor);
+        return count;
+    }
+
+    private int restyle(Collection<GeofenceCircle> circles, int fromIndex, int toIndex, BitmapDescriptor resizerIconDescriptor) {
+        int count = 0;
+        for (GeofenceCircle circle : circles) {
+            if (store.getStyleIndex(circle.getSlot()) != fromIndex) continue;
+            circle.applyStyle(toIndex, resizerIconDescriptor);
+            count++;
+        }
+        return count;
+    }
+
+    private void registerSavedCircle(GeofenceCircle circle) {
+        savedPoints.put(circle.getCircleId(), circle);
+        indexMarkers(circle);
+        index(circle);
+        if (levelOfDetail != null && cameraZoom >= 0) levelOfDetail.apply(circle, cameraZoom);
+    }
+
+    /**
+     * Updates only what changed of a saved circle, map objects are kept
+     */
+    void updateSavedCircle(GeofenceCircle savedCircle, LatLng center, double radius, int fillColor) {
+        boolean isMoved = savedCircle.getLatitude() != center.latitude || savedCircle.getLongitude() != center.longitude;
+        boolean isResized = savedCircle.getRadius() != radius;
+
+        if (isResized) savedCircle.setRadius(radius);
+        if (isMoved || isResized) {
+            // also moves the resizer to the new radius
+            savedCircle.setCenter(center);
+            index(savedCircle);
+        }
+        savedCircle.setFillColor(fillColor);
+        if (levelOfDetail != null && cameraZoom >= 0) levelOfDetail.apply(savedCircle, cameraZoom);
+    }
+
+    /**
+     * @return saved circle with the given id, or null
+     */
+    public GeofenceCircle getSavedCircle(long geofenceCircleId) {
+        return savedPoints.get(geofenceCircleId);
+    }
+
+    /**
+     * @return saved circles on the map, in the order they were added
+     */
+    public List<GeofenceCircle> getSavedCircles() {
+        return new ArrayList<>(savedPoints.values());
+    }
+
+    /**
+     * Removes the hidden markers and circles kept for reuse from the map, e.g. when the map is no longer shown
+     */
+    public void clearMapObjectPool() {
+        mapObjectPool.clear();
+    }
+
+    /**
+     * Applies a server side change set to the saved points. Each geofence is looked up by id:
+     * only the circles that were added, updated or deleted are touched on the map, the rest stays as is.
+     * Virtual points are updated as virtual points.
+     *
+     * @param upserts added and updated geofences
+     * @param deletedIds ids of deleted geofences
+     */
+    public void applyDelta(Collection<GeofenceSpec> upserts, Collection<Long> deletedIds) {
+        boolean isVirtualChanged = false;
+        for (Long deletedId : deletedIds) {
+            if (viewportVirtualizer.remove(deletedId)) {
+                isVirtualChanged = true;
+            } else {
+                removeCircle(deletedId);
+            }
+        }
+        for (GeofenceSpec spec : upserts) {
+            if (viewportVirtualizer.update(spec)) {
+                isVirtualChanged = true;
+            } else {
+                addSavedPoint(spec.getCenter(), spec.getRadius(), spec.getCircleId(), spec.getFillColor());
+            }
+        }
+        if (isVirtualChanged) viewportVirtualizer.refresh();
+    }
+
+    /**
+     * Adds the circle of a virtual point, with its own style and radius limits
+     *
+     * @return null when a saved circle with the same id is already on the map, that circle is left untouched
+     */
+    GeofenceCircle addVirtualCircle(LatLng savedPoint, double radius, long geofenceCircleId,
+                                    GeofenceStyle circleStyle, int minRadius, int maxRadius) {
+        if (savedPoints.containsKey(geofenceCircleId)) return null;
+
+        GeofenceCircle circle = newCircleBuilder(savedPoint, radius, geofenceCircleId, circleStyle, minRadius, maxRadius).build();
+        registerSavedCircle(circle);
         return circle;
     }
 
+    /**
+     * @return saved circle added as a plotted point with the id, a virtual point with the id is removed
+     * so that the plotted point replaces it
+     */
+    private GeofenceCircle plottedCircle(long geofenceCircleId) {
+        GeofenceCircle savedCircle = savedPoints.get(geofenceCircleId);
+        if (savedCircle == null || !viewportVirtualizer.isMaterialized(savedCircle)) return savedCircle;
+        viewportVirtualizer.remove(geofenceCircleId);
+        return null;
+    }
+
+    /**
+     * Removes a saved circle from the map and from every index
+     */
+    void detachSavedCircle(GeofenceCircle savedCircle) {
+        unindexMarkers(savedCircle);
+        spatialIndex.remove(savedCircle);
+        if (savedPoints.get(savedCircle.getCircleId()) == savedCircle) savedPoints.remove(savedCircle.getCircleId());
+        savedCircle.removeArea();
+    }
+
+    /**
+     * Adds saved points in virtualized mode: they are kept as lightweight models and only get
+     * map objects while inside the viewport (plus the viewport margin). Map objects are created
+     * and removed as the camera becomes idle.
+     *
+     * A point with the id of an existing virtual point replaces it.
+     *
+     * @param geofenceSpecs saved points returned by the server
+     */
+    public void addVirtualPoints(Collection<GeofenceSpec> geofenceSpecs) {
+        viewportVirtualizer.addAll(geofenceSpecs);
+
+        if (!isCameraIdleListenerSet) {
+            listenToCameraIdle();
+        } else {
+            viewportVirtualizer.refresh();
+        }
+    }
+
+    public boolean removeVirtualPoint(long geofenceCircleId) {
+        return viewportVirtualizer.remove(geofenceCircleId);
+    }
+
+    public void clearVirtualPoints() {
+        viewportVirtualizer.clear();
+    }
+
+    /**
+     * @return circles of virtual points currently on the map
+     */
+    public List<GeofenceCircle> getMaterializedCircles() {
+        return viewportVirtualizer.getMaterializedCircles();
+    }
+
+    /**
+     * Writes every saved point, plotted or virtual, to a snapshot file that
+     * {@link #restoreSnapshot(File)} can reopen on the next start. The file is replaced atomically.
+     *
+     * @return number of points written
+     */
+    public int writeSnapshot(File file) throws IOException {
+        GeofenceSnapshot.Writer writer = new GeofenceSnapshot.Writer(file);
+        boolean isWritten = false;
+        try {
+            for (GeofenceCircle savedCircle : savedPoints.values()) {
+                int slot = savedCircle.getSlot();
+                GeofenceStyle circleStyle = savedCircle.getStyle();
+                writer.add(store.getId(slot), store.getLatitude(slot), store.getLongitude(slot), store.getRadius(slot),
+                        store.getMinRadius(slot), store.getMaxRadius(slot), circleStyle.getFillColor(),
+                        circleStyle.getStrokeColor(), circleStyle.getStrokeWidth());
+            }
+            viewportVirtualizer.writeDetached(writer);
+            writer.close();
+            isWritten = true;
+        } finally {
+            if (!isWritten) writer.abort();
+        }
+        return writer.size();
+    }
+
+    /**
+     * Restores the points of a snapshot written by {@link #writeSnapshot(File)} as virtual points,
+     * see {@link #addVirtualPoints(Collection)}, with the radius limits and stroke they were saved with.
+     * Records are read from a memory mapping and copied into the virtual point models, the file is
+     * closed before returning. Circles are only created once they come into view.
+     *
+     * @return number of points restored
+     * @throws IOException when the file is missing, corrupt or of an unsupported version
+     */
+    public int restoreSnapshot(File file) throws IOException {
+        GeofenceSnapshot snapshot = GeofenceSnapshot.open(file);
+        try {
+            viewportVirtualizer.addAll(snapshot);
+        } finally {
+            snapshot.close();
+        }
+
+        if (!isCameraIdleListenerSet) {
+            listenToCameraIdle();
+        } else {
+            viewportVirtualizer.refresh();
+        }
+        return snapshot.size();
+    }
+
+    /**
+     * Shows data points as clusters: points are bucketed per zoom level into a screen space grid
+     * on a background thread and every cluster is drawn as a single DATA_POINT_WRAPPER marker
+     * with its count. Replaces previously clustered points.
+     *
+     * @param points positions of the data points
+     * @param locationData optional payload per point, same order as points
+     */
+    public void clusterDataPoints(List<LatLng> points, List<?> locationData) {
+        if (pointClusterer == null) {
+            pointClusterer = new PointClusterer(context, googleMap, clusterCellSizeDp, style.getCenterIcon());
+        }
+        pointClusterer.setPoints(points, locationData);
+
+        if (!isCameraIdleListenerSet) {
+            listenToCameraIdle();
+        } else {
+            onCameraIdle();
+        }
+    }
+
+    /**
+     * Removes every cluster marker created by {@link #clusterDataPoints(List, List)}
+     */
+    public void clearDataPoints() {
+        if (pointClusterer == null) return;
+        pointClusterer.destroy();
+        pointClusterer = null;
+    }
+
+    private void listenToCameraIdle() {
+        googleMap.setOnCameraIdleListener(this);
+        isCameraIdleListenerSet = true;
+        onCameraIdle();
+    }
+
+    /**
+     * Registered automatically once virtual or clustered points are added, or on build when level of
+     * detail or the projection cache is enabled. Apps using their own
+     * camera idle listener should forward the event here.
+     */
+    @Override
+    public void onCameraIdle() {
+        long begin = metrics.begin(GeofenceMetrics.Timer.cameraIdle);
+        try {
+            LatLngBounds visibleBounds;
+            if (projectionCache != null) {
+                projectionCache.refresh();
+                visibleBounds = projectionCache.getVisibleBounds();
+                cameraZoom = projectionCache.getZoom();
+            } else {
+                visibleBounds = googleMap.getProjection().getVisibleRegion().latLngBounds;
+                cameraZoom = googleMap.getCameraPosition().zoom;
+            }
+            viewportVirtualizer.onViewportChanged(visibleBounds);
+            if (pointClusterer != null) pointClusterer.onCameraIdle(cameraZoom, visibleBounds);
+            if (levelOfDetail != null) {
+                for (GeofenceCircle savedCircle : savedPoints.values()) {
+                    levelOfDetail.apply(savedCircle, cameraZoom);
+                }
+            }
+        } finally {
+            metrics.end(GeofenceMetrics.Timer.cameraIdle, begin);
+        }
+        reportGauges();
+    }
+
+    /**
+     * Registered on build when the projection cache is enabled. Apps using their own camera move
+     * listener should forward the event here.
+     */
+    @Override
+    public void onCameraMove() {
+        if (projectionCache != null) projectionCache.onCameraMove();
+    }
+
+    /**
+     * @return screen and map coordinate conversions kept up to date with the camera,
+     *         null unless enabled with {@link Builder#cacheProjection(boolean)}
+     */
+    public ProjectionCache getProjectionCache() {
+        return projectionCache;
+    }
+
+    /**
+     * Reports the current object counts and icon cache statistics to the metrics,
+     * done automatically on camera idle
+     */
+    public void reportGauges() {
+        metrics.gauge(GeofenceMetrics.Gauge.savedCircles, savedPoints.size());
+        metrics.gauge(GeofenceMetrics.Gauge.circles, areas.size() + savedPoints.size());
+        metrics.gauge(GeofenceMetrics.Gauge.markers, markerRouter.size());
+        metrics.gauge(GeofenceMetrics.Gauge.pooledObjects, mapObjectPool.size());
+        metrics.gauge(GeofenceMetrics.Gauge.iconCacheHits, MarkerIconCache.hitCount());
+        metrics.gauge(GeofenceMetrics.Gauge.iconCacheMisses, MarkerIconCache.missCount());
+        metrics.gauge(GeofenceMetrics.Gauge.iconCacheEntries, MarkerIconCache.size());
+        metrics.gauge(GeofenceMetrics.Gauge.iconBitmapBytes, MarkerIconCache.bitmapBytes());
+    }
+
+    /**
+     * Checks the circle against its neighbours in the spatial index only
+     *
+     * @return other circles on the map overlapping the circle
+     */
+    public List<GeofenceCircle> overlapping(GeofenceCircle circle) {
+        List<GeofenceCircle> result = new ArrayList<>();
+        if (circle.isRemoved()) return result;
+
+        double latitude = circle.getLatitude();
+        double longitude = circle.getLongitude();
+        double radius = circle.getRadius();
+        double latitudeSpan = Math.toDegrees(radius / MarkerAreasConstants.RADIUS_OF_EARTH_METERS);
+        double longitudeSpan = MarkerAreasUtils.toRadiusLongitude(latitude, longitude, radius) - longitude;
+        spatialIndex.intersecting(latitude - latitudeSpan, longitude - longitudeSpan, latitude + latitudeSpan, longitude + longitudeSpan, result);
+
+        int kept = 0;
+        for (int i = 0; i < result.size(); i++) {
+            GeofenceCircle other = result.get(i);
+            if (other == circle) continue;
+            double distance = GeoDistance.haversine(latitude, longitude, other.getLatitude(), other.getLongitude());
+            if (distance < radius + other.getRadius()) result.set(kept++, other);
+        }
+        result.subList(kept, result.size()).clear();
+        return result;
+    }
+
+    /**
+     * Finds every overlapping pair of saved circles in one sweep line pass, pairs are reported by geofence id
+     * through {@link GeofenceOverlaps#getFirstId(int)} and {@link GeofenceOverlaps#getSecondId(int)}
+     */
+    public GeofenceOverlaps findOverlaps() {
+        int count = savedPoints.size();
+        long[] ids = new long[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] radii = new double[count];
+        int i = 0;
+        for (GeofenceCircle savedCircle : savedPoints.values()) {
+            ids[i] = savedCircle.getCircleId();
+            latitudes[i] = savedCircle.getLatitude();
+            longitudes[i] = savedCircle.getLongitude();
+            radii[i] = savedCircle.getRadius();
+            i++;
+        }
+        return GeofenceOverlaps.find(ids, latitudes, longitudes, radii, count);
+    }
+
+    /**
+     * Places a polygon geofence on the map, a polygon with the id of an existing one replaces it
+     *
+     * @param vertices at least 3 vertices, in order around the polygon
+     */
+    public GeofencePolygon addPolygon(List<LatLng> vertices, long polygonId, int fillColor) {
+        removePolygon(polygonId);
+
+        GeofencePolygon polygon = new GeofencePolygon.Builder(context)
+                .map(googleMap)
+                .enabled(isEnabled)
+                .vertices(vertices)
+                .polygonId(polygonId)
+                .fillColor(fillColor)
+                .strokeWidth(style.getStrokeWidth())
+                .strokeColor(style.getStrokeColor())
+                .vertexIcon(style.getResizerIcon())
+                .mapObjectPool(mapObjectPool)
+                .build();
+        polygons.put(polygonId, polygon);
+        indexPolygon(polygon);
+        Marker[] vertexMarkers = polygon.getVertexMarkers();
+        for (int i = 0; i < vertexMarkers.length; i++) {
+            markerRouter.put(vertexMarkers[i].getId(), polygon, i, polygonMarkerHandler);
+        }
+        if(polygonManagerListener != null) polygonManagerListener.onCreatePolygon(polygon);
+        return polygon;
+    }
+
+    /**
+     * @return false when there is no polygon with that id
+     */
+    public boolean removePolygon(long polygonId) {
+        GeofencePolygon polygon = polygons.remove(polygonId);
+        if (polygon == null) return false;
+
+        unindexMarkers(polygon);
+        polygonIndex.remove(polygon);
+        polygon.removeArea();
+        return true;
+    }
+
+    public void clearPolygons() {
+        for (GeofencePolygon polygon : polygons.values()) {
+            unindexMarkers(polygon);
+            polygon.removeArea();
+        }
+        polygons.clear();
+        polygonIndex.clear();
+    }
+
+    /**
+     * @return polygon with the given id, or null
+     */
+    public GeofencePolygon getPolygon(long polygonId) {
+        return polygons.get(polygonId);
+    }
+
+    /**
+     * @return polygons on the map, in the order they were added
+     */
+    public List<GeofencePolygon> getPolygons() {
+        return new ArrayList<>(polygons.values());
+    }
+
+    /**
+     * @return polygons on the map containing the point
+     */
+    public List<GeofencePolygon> polygonsContaining(LatLng point) {
+        List<GeofencePolygon> candidates = new ArrayList<>();
+        polygonIndex.containing(point.latitude, point.longitude, candidates);
+        List<GeofencePolygon> result = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (candidates.get(i).contains(point)) result.add(candidates.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Indexes the polygon as the circle around its bounding box
+     */
+    private void indexPolygon(GeofencePolygon polygon) {
+        LatLngBounds bounds = polygon.getBounds();
+        LatLng center = bounds.getCenter();
+        double radius = GeoDistance.haversine(center.latitude, center.longitude, bounds.northeast.latitude, bounds.northeast.longitude);
+        radius = Math.max(radius, GeoDistance.haversine(center.latitude, center.longitude, bounds.southwest.latitude, bounds.northeast.longitude));
+        polygonIndex.put(polygon, center.latitude, center.longitude, radius);
+    }
+
+    GeofenceMetrics getMetrics() {
+        return metrics;
+    }
+
     public List<GeofenceCircle> getCircles() {
         return areas;
     }
 
+    /**
+     * @return circles on the map containing the point
+     */
+    public List<GeofenceCircle> containing(LatLng point) {
+        List<GeofenceCircle> result = new ArrayList<>();
+        spatialIndex.containing(point.latitude, point.longitude, result);
+        return result;
+    }
+
+    /**
+     * @return circles on the map overlapping the bounds
+     */
+    public List<GeofenceCircle> intersecting(LatLngBounds bounds) {
+        List<GeofenceCircle> result = new ArrayList<>();
+        spatialIndex.intersecting(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude, result);
+        return result;
+    }
+
+    /**
+     * @return up to k circles on the map with the closest centers to the point, closest first
+     */
+    public List<GeofenceCircle> nearest(LatLng point, int k) {
+        List<GeofenceCircle> result = new ArrayList<>(k);
+        spatialIndex.nearest(point.latitude, point.longitude, k, result);
+        return result;
+    }
+
+    /**
+     * Stream of discrete circle events: creation, clicks, start and end of move and resize gestures,
+     * and min/max radius hits (throttled, they repeat on every drag tick past the limit).
+     * Per tick drag events are left out, see {@link #dragEvents(long, TimeUnit)}.
+     *
+     * Events are emitted on the main thread and buffered for slow subscribers, use observeOn to
+     * process them on another scheduler.
+     */
+    public Observable<CircleEvent> circleEvents() {
+        Observable<CircleEvent> events = eventSubject();
+        Observable<CircleEvent> discrete = events.filter(new Func1<CircleEvent, Boolean>() {
+            @Override
+            public Boolean call(CircleEvent event) {
+                return !event.isDragTick() && !isLimit(event);
+            }
+        });
+        Observable<CircleEvent> limits = events.filter(new Func1<CircleEvent, Boolean>() {
+            @Override
+            public Boolean call(CircleEvent event) {
+                return isLimit(event);
+            }
+        }).throttleFirst(LIMIT_EVENT_THROTTLE_MILLIS, TimeUnit.MILLISECONDS);
+        return Observable.merge(discrete, limits).onBackpressureBuffer();
+    }
+
+    /**
+     * Stream of move and resize events while a circle is dragged, sampled to at most one event
+     * per interval. Slow subscribers only get the latest event.
+     *
+     * Events are emitted on the computation scheduler.
+     */
+    public Observable<CircleEvent> dragEvents(long sampleInterval, TimeUnit unit) {
+        return eventSubject().filter(new Func1<CircleEvent, Boolean>() {
+            @Override
+            public Boolean call(CircleEvent event) {
+                return event.isDragTick();
+            }
+        }).sample(sampleInterval, unit).onBackpressureLatest();
+    }
+
+    private PublishSubject<CircleEvent> eventSubject() {
+        if (eventSubject == null) eventSubject = PublishSubject.create();
+        return eventSubject;
+    }
+
+    private boolean hasEventObservers() {
+        return eventSubject != null && eventSubject.hasObservers();
+    }
+
+    private void publish(CircleEvent.Type type, GeofenceCircle circle) {
+        // no event is allocated on the drag path unless someone subscribed
+        if (hasEventObservers()) eventSubject.onNext(new CircleEvent(type, circle));
+    }
+
+    private void publish(MarkerMoveResultWithCircle result, CircleEvent.Type moveType, CircleEvent.Type resizeType) {
+        switch (result.markerMoveResult) {
+            case minRadius: {
+                publish(CircleEvent.Type.minRadius, result.circle);
+                break;
+            }
+            case maxRadius: {
+                publish(CircleEvent.Type.maxRadius, result.circle);
+                break;
+            }
+            case moved: {
+                publish(moveType, result.circle);
+                break;
+            }
+            case radiusChange: {
+                publish(resizeType, result.circle);
+                break;
+            }
+            default: break;
+        }
+    }
+
+    private static boolean isLimit(CircleEvent event) {
+        return event.getType() == CircleEvent.Type.minRadius || event.getType() == CircleEvent.Type.maxRadius;
+    }
+
     @Override
     public void onMapClick(LatLng latLng) {
         markThis(latLng, false);
@@ -326,16 +1252,102 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
 
     @Override
     public boolean onMarkerClick(Marker marker) {
-
-        if(circleManagerListener == null) return false;
-        MarkerMoveResultWithCircle result = onMarkerMoved(marker);
-        circleManagerListener.onCircleMarkerClick(result.circle);
+        dispatch(marker, MarkerRouter.Event.click);
         return false;
     }
 
     @Override
     public void onMarkerDragStart(Marker marker) {
-        MarkerMoveResultWithCircle result = onMarkerMoved(marker);
+        dispatch(marker, MarkerRouter.Event.dragStart);
+    }
+
+    @Override
+    public void onMarkerDrag(Marker marker) {
+        dispatch(marker, MarkerRouter.Event.drag);
+    }
+
+    @Override
+    public void onMarkerDragEnd(Marker marker) {
+        dispatch(marker, MarkerRouter.Event.dragEnd);
+    }
+
+    /**
+     * Routes the event to the circle or polygon owning the marker, markers of neither are reported as circle events
+     * without a circle
+     */
+    private void dispatch(Marker marker, MarkerRouter.Event event) {
+        if (!markerRouter.dispatch(marker.getId(), event, marker)) {
+            onCircleMarkerEvent(null, GeofenceCircle.MarkerType.none, event, marker);
+        }
+    }
+
+    private final MarkerRouter.Handler<GeofenceCircle, Marker> circleMarkerHandler = new MarkerRouter.Handler<GeofenceCircle, Marker>() {
+        @Override
+        public void onMarkerEvent(GeofenceCircle circle, int role, MarkerRouter.Event event, Marker marker) {
+            onCircleMarkerEvent(circle, role == ROLE_RESIZER ? GeofenceCircle.MarkerType.resize : GeofenceCircle.MarkerType.move, event, marker);
+        }
+    };
+
+    private final MarkerRouter.Handler<GeofencePolygon, Marker> polygonMarkerHandler = new MarkerRouter.Handler<GeofencePolygon, Marker>() {
+        @Override
+        public void onMarkerEvent(GeofencePolygon polygon, int vertexIndex, MarkerRouter.Event event, Marker marker) {
+            switch (event) {
+                case click: {
+                    if(polygonManagerListener != null) polygonManagerListener.onPolygonMarkerClick(polygon, vertexIndex);
+                    break;
+                }
+                case dragStart: {
+                    polygon.onVertexMoved(vertexIndex, marker);
+                    if(polygonManagerListener != null) polygonManagerListener.onMoveVertexStart(polygon, vertexIndex);
+                    break;
+                }
+                case drag: {
+                    polygon.onVertexMoved(vertexIndex, marker);
+                    break;
+                }
+                case dragEnd: {
+                    polygon.onVertexMoved(vertexIndex, marker);
+                    indexPolygon(polygon);
+                    if(polygonManagerListener != null) polygonManagerListener.onMoveVertexEnd(polygon, vertexIndex);
+                    break;
+                }
+                default: break;
+            }
+        }
+    };
+
+    private void onCircleMarkerEvent(GeofenceCircle circle, GeofenceCircle.MarkerType markerType, MarkerRouter.Event event, Marker marker) {
+        switch (event) {
+            case click: {
+                onCircleMarkerClick(circle, markerType, marker);
+                break;
+            }
+            case dragStart: {
+                onCircleMarkerDragStart(circle, markerType, marker);
+                break;
+            }
+            case drag: {
+                onCircleMarkerDrag(circle, markerType, marker);
+                break;
+            }
+            case dragEnd: {
+                onCircleMarkerDragEnd(circle, markerType, marker);
+                break;
+            }
+            default: break;
+        }
+    }
+
+    private void onCircleMarkerClick(GeofenceCircle circle, GeofenceCircle.MarkerType markerType, Marker marker) {
+        if(circleManagerListener == null && !hasEventObservers()) return;
+        MarkerMoveResultWithCircle result = onMarkerMoved(circle, markerType, marker);
+        if(result.circle != null) publish(CircleEvent.Type.click, result.circle);
+        if(circleManagerListener != null) circleManagerListener.onCircleMarkerClick(result.circle);
+    }
+
+    private void onCircleMarkerDragStart(GeofenceCircle circle, GeofenceCircle.MarkerType markerType, Marker marker) {
+        MarkerMoveResultWithCircle result = onMarkerMoved(circle, markerType, marker);
+        publish(result, CircleEvent.Type.moveStart, CircleEvent.Type.resizeStart);
         if(circleManagerListener == null) return;
         switch (result.markerMoveResult) {
             case minRadius: {
@@ -358,9 +1370,15 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
         }
     }
 
-    @Override
-    public void onMarkerDrag(Marker marker) {
-        MarkerMoveResultWithCircle result = onMarkerMoved(marker);
+    private void onCircleMarkerDrag(GeofenceCircle circle, GeofenceCircle.MarkerType markerType, Marker marker) {
+        long begin = metrics.begin(GeofenceMetrics.Timer.markerDrag);
+        MarkerMoveResultWithCircle result;
+        try {
+            result = onMarkerMoved(circle, markerType, marker);
+        } finally {
+            metrics.end(GeofenceMetrics.Timer.markerDrag, begin);
+        }
+        publish(result, CircleEvent.Type.move, CircleEvent.Type.resize);
         if(circleManagerListener == null) return;
         switch (result.markerMoveResult) {
             case minRadius: {
@@ -375,9 +1393,12 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
         }
     }
 
-    @Override
-    public void onMarkerDragEnd(Marker marker) {
-        MarkerMoveResultWithCircle result = onMarkerMoved(marker);
+    private void onCircleMarkerDragEnd(GeofenceCircle circle, GeofenceCircle.MarkerType markerType, Marker marker) {
+        MarkerMoveResultWithCircle result = onMarkerMoved(circle, markerType, marker);
+        if(dragFrameScheduler != null && result.circle != null) dragFrameScheduler.flush(result.circle);
+        if(result.circle != null) viewportVirtualizer.onCircleChanged(result.circle);
+        publish(result, CircleEvent.Type.moveEnd, CircleEvent.Type.resizeEnd);
+        notifyOverlaps(result);
         if(circleManagerListener == null) return;
         switch (result.markerMoveResult) {
             case minRadius: {
@@ -399,4 +1420,12 @@ public class MarkerBuilderManagerV2 implements GoogleMap.OnMarkerClickListener,
             default: break;
         }
     }
+
+    private void notifyOverlaps(MarkerMoveResultWithCircle result) {
+        if (overlapListener == null || result.circle == null) return;
+        if (result.markerMoveResult == GeofenceCircle.MarkerMoveResult.moved
+                || result.markerMoveResult == GeofenceCircle.MarkerMoveResult.radiusChange) {
+            overlapListener.onOverlapChanged(result.circle, overlapping(result.circle));
+        }
+    }
 }
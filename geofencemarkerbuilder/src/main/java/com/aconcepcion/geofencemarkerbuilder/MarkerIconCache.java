@@ -0,0 +1,151 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.v4.content.res.ResourcesCompat;
+import android.util.LruCache;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide LRU cache of marker icons
+ *
+ * Circles sharing the same style get the same {@link BitmapDescriptor}, so a drawable is
+ * rasterized once per resource id, size and screen density instead of once per marker.
+ */
+public class MarkerIconCache {
+
+    private static final int MAX_ENTRIES = 32;
+
+    /**
+     * Cached descriptor with the size of the bitmap it was created from
+     */
+    private static final class Icon {
+        final BitmapDescriptor descriptor;
+        final int byteCount;
+
+        Icon(BitmapDescriptor descriptor, int byteCount) {
+            this.descriptor = descriptor;
+            this.byteCount = byteCount;
+        }
+    }
+
+    private static final AtomicLong bitmapBytes = new AtomicLong();
+
+    private static final LruCache<String, Icon> icons = new LruCache<String, Icon>(MAX_ENTRIES) {
+        @Override
+        protected void entryRemoved(boolean evicted, String key, Icon oldValue, Icon newValue) {
+            bitmapBytes.addAndGet(-oldValue.byteCount);
+        }
+    };
+
+    /**
+     * @param drawableId drawable resource to rasterize
+     * @param sizePx width and height of the resulting icon in pixels
+     * @return icon with the drawable drawn into a square ARGB_8888 bitmap of the given size
+     */
+    public static BitmapDescriptor getDrawableIcon(Context context, int drawableId, int sizePx) {
+        String key = key(context, "drawable", drawableId, sizePx);
+        BitmapDescriptor descriptor = get(key);
+        if (descriptor != null) return descriptor;
+
+        Bitmap bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Drawable shape = ResourcesCompat.getDrawable(context.getResources(), drawableId, null);
+        shape.setBounds(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        shape.draw(canvas);
+
+        return put(key, bitmap);
+    }
+
+    /**
+     * @param drawableId bitmap drawable resource
+     * @return icon of the bitmap scaled to half its intrinsic size
+     */
+    public static BitmapDescriptor getHalfScaledIcon(Context context, int drawableId) {
+        String key = key(context, "halfScaled", drawableId, 0);
+        BitmapDescriptor descriptor = get(key);
+        if (descriptor != null) return descriptor;
+
+        return put(key, getHalfScaledBitmap(context, drawableId));
+    }
+
+    /**
+     * @param color opaque color of the dot
+     * @param sizePx diameter of the dot in pixels
+     * @return icon of a filled circle, used for geofences drawn as dots when zoomed out
+     */
+    public static BitmapDescriptor getDotIcon(Context context, int color, int sizePx) {
+        String key = key(context, "dot", color, sizePx);
+        BitmapDescriptor descriptor = get(key);
+        if (descriptor != null) return descriptor;
+
+        Bitmap bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(color);
+        new Canvas(bitmap).drawCircle(sizePx / 2f, sizePx / 2f, sizePx / 2f, paint);
+
+        return put(key, bitmap);
+    }
+
+    static Bitmap getHalfScaledBitmap(Context context, int drawableId) {
+        BitmapDrawable bitmapDrawable = (BitmapDrawable) context.getResources().getDrawable(drawableId);
+        Bitmap bitmap = bitmapDrawable.getBitmap();
+        return Bitmap.createScaledBitmap(bitmap, bitmap.getWidth() / 2, bitmap.getHeight() / 2, false);
+    }
+
+    /**
+     * Lookup of composed icons that are not backed by a single resource
+     *
+     * @param key key built with {@link #key(Context, String, int, int)}
+     */
+    static BitmapDescriptor get(String key) {
+        Icon icon = icons.get(key);
+        return icon != null ? icon.descriptor : null;
+    }
+
+    /**
+     * @return descriptor of the bitmap, now cached under the key
+     */
+    static BitmapDescriptor put(String key, Bitmap bitmap) {
+        Icon icon = new Icon(BitmapDescriptorFactory.fromBitmap(bitmap), bitmap.getByteCount());
+        bitmapBytes.addAndGet(icon.byteCount);
+        icons.put(key, icon);
+        return icon.descriptor;
+    }
+
+    static String key(Context context, String kind, int resourceId, int sizePx) {
+        float density = context.getResources().getDisplayMetrics().density;
+        return kind + ':' + resourceId + ':' + sizePx + ':' + density;
+    }
+
+    public static void clear() {
+        icons.evictAll();
+    }
+
+    public static int hitCount() {
+        return icons.hitCount();
+    }
+
+    public static int missCount() {
+        return icons.missCount();
+    }
+
+    public static int size() {
+        return icons.size();
+    }
+
+    /**
+     * @return bytes of the bitmaps behind the cached icons
+     */
+    public static long bitmapBytes() {
+        return bitmapBytes.get();
+    }
+}
@@ -8,7 +8,15 @@ public class MarkerMoveResultWithCircle {
     GeofenceCircle circle;
 
     public MarkerMoveResultWithCircle(GeofenceCircle.MarkerMoveResult markerMoveResult, GeofenceCircle circle) {
+        set(markerMoveResult, circle);
+    }
+
+    /**
+     * Overwrites this result so a single instance can be reused across drag events
+     */
+    MarkerMoveResultWithCircle set(GeofenceCircle.MarkerMoveResult markerMoveResult, GeofenceCircle circle) {
         this.markerMoveResult = markerMoveResult;
         this.circle = circle;
+        return this;
     }
 }
\ No newline at end of file
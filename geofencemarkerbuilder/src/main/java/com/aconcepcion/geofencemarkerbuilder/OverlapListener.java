@@ -0,0 +1,15 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.List;
+
+/**
+ * Reports the circles overlapping a circle once it was created, moved or resized
+ */
+public interface OverlapListener {
+
+    /**
+     * @param circle created, moved or resized circle
+     * @param overlapping other circles on the map overlapping it, empty when it no longer overlaps any
+     */
+    void onOverlapChanged(GeofenceCircle circle, List<GeofenceCircle> overlapping);
+}
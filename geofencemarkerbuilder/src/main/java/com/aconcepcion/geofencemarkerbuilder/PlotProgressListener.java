@@ -0,0 +1,22 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import java.util.List;
+
+/**
+ * Progress of a batch started with {@link MarkerBuilderManagerV2#plotPoints(java.util.Collection, boolean, PlotProgressListener)}
+ */
+public interface PlotProgressListener {
+
+    /**
+     * Called after every frame that plotted part of the batch
+     * @param plotted number of circles plotted so far
+     * @param total number of circles in the batch
+     */
+    void onPlotProgress(int plotted, int total);
+
+    /**
+     * Called once the whole batch is on the map
+     * @param circles plotted circles, in the order of the batch
+     */
+    void onPlotComplete(List<GeofenceCircle> circles);
+}
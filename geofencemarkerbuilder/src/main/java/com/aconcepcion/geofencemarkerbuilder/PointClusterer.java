@@ -0,0 +1,395 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Grid based clustering of data points
+ *
+ * Points are projected once to normalized Web Mercator coordinates. For each integer zoom level
+ * they are bucketed into a screen space grid of {@code cellSizeDp} cells on a background thread,
+ * and every non empty cell becomes one {@link MarkerAreaWrapper} in DATA_POINT_WRAPPER mode
+ * carrying the cell's count, its members' location data and whether it can be expanded.
+ *
+ * Levels are computed on demand when the camera settles on a new zoom and cached until the
+ * points change. Only clusters inside the viewport (plus a margin) get markers, and panning
+ * within a zoom level only adds and removes the clusters that crossed the viewport edge.
+ *
+ * Must be used from the main thread.
+ */
+public class PointClusterer {
+
+    public static final int DEFAULT_CELL_SIZE_DP = 80;
+
+    private static final int MAX_ZOOM = 21;
+    private static final double VIEWPORT_MARGIN = 0.25;
+    private static final int ICON_SIZE_DP = 36;
+
+    /**
+     * Immutable projected copy of the points, shared with the worker thread
+     */
+    private static class PointSet {
+        final double[] x;
+        final double[] y;
+        final Object[] locationData;
+
+        PointSet(double[] x, double[] y, Object[] locationData) {
+            this.x = x;
+            this.y = y;
+            this.locationData = locationData;
+        }
+    }
+
+    /**
+     * Clusters of one zoom level, members of cluster i are members[memberStart[i] .. memberStart[i + 1])
+     */
+    private static class ClusterLevel {
+        final long[] cellKeys;
+        final double[] latitudes;
+        final double[] longitudes;
+        final int[] memberStart;
+        final int[] members;
+
+        ClusterLevel(long[] cellKeys, double[] latitudes, double[] longitudes, int[] memberStart, int[] members) {
+            this.cellKeys = cellKeys;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.memberStart = memberStart;
+            this.members = members;
+        }
+
+        int size() {
+            return cellKeys.length;
+        }
+
+        int count(int cluster) {
+            return memberStart[cluster + 1] - memberStart[cluster];
+        }
+    }
+
+    private final Context context;
+    private final GoogleMap googleMap;
+    private final int cellSizeDp;
+    private final int centerDrawableId;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "PointClusterer");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private PointSet pointSet;
+    private int generation;
+    private final ClusterLevel[] levels = new ClusterLevel[MAX_ZOOM + 1];
+    private final boolean[] isLevelPending = new boolean[MAX_ZOOM + 1];
+
+    private int renderedZoom = -1;
+    private int cameraZoom = -1;
+    private LatLngBounds cameraBounds;
+    private final LongIntHashMap renderedIndex = new LongIntHashMap();
+    private final ArrayList<MarkerAreaWrapper> renderedMarkers = new ArrayList<>();
+    private final ArrayList<Long> renderedKeys = new ArrayList<>();
+
+    /**
+     * @param cellSizeDp edge of a grid cell on screen, points closer than this merge into one cluster
+     * @param centerDrawableId drawable for single points, -1 for the default marker
+     */
+    public PointClusterer(Context context, GoogleMap googleMap, int cellSizeDp, int centerDrawableId) {
+        this.context = context;
+        this.googleMap = googleMap;
+        this.cellSizeDp = cellSizeDp;
+        this.centerDrawableId = centerDrawableId;
+    }
+
+    /**
+     * Replaces the clustered points
+     *
+     * @param points positions of the data points
+     * @param locationData optional payload per point (same order as points), handed out through
+     *                     {@link MarkerAreaWrapper#getLocationData()} of the cluster containing it
+     */
+    public void setPoints(final List<LatLng> points, final List<?> locationData) {
+        final int pointGeneration = ++generation;
+        pointSet = null;
+        for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+            levels[zoom] = null;
+            isLevelPending[zoom] = false;
+        }
+
+        final LatLng[] positions = points.toArray(new LatLng[points.size()]);
+        final Object[] data = locationData != null ? locationData.toArray() : null;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final PointSet projected = project(positions, data);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pointGeneration != generation) return;
+                        pointSet = projected;
+                        renderedZoom = -1;
+                        requestRender();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Re-clusters for the current camera, call when the camera becomes idle
+     */
+    public void onCameraIdle(float zoom, LatLngBounds visibleBounds) {
+        cameraZoom = Math.max(0, Math.min(MAX_ZOOM, (int) Math.floor(zoom)));
+        cameraBounds = visibleBounds;
+        requestRender();
+    }
+
+    /**
+     * Removes every cluster marker and stops background work
+     */
+    public void destroy() {
+        generation++;
+        clearRendered();
+        executor.shutdownNow();
+    }
+
+    private void requestRender() {
+        if (pointSet == null || cameraZoom < 0 || cameraBounds == null) return;
+
+        final int zoom = cameraZoom;
+        ClusterLevel level = levels[zoom];
+        if (level != null) {
+            render(zoom, level);
+            return;
+        }
+        if (isLevelPending[zoom]) return;
+        isLevelPending[zoom] = true;
+
+        final PointSet points = pointSet;
+        final int levelGeneration = generation;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ClusterLevel computed = cluster(points, zoom, cellSizeDp);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (levelGeneration != generation) return;
+                        isLevelPending[zoom] = false;
+                        levels[zoom] = computed;
+                        requestRender();
+                    }
+                });
+            }
+        });
+    }
+
+    private void render(int zoom, ClusterLevel level) {
+        if (zoom != renderedZoom) {
+            clearRendered();
+            renderedZoom = zoom;
+        }
+
+        double south = cameraBounds.southwest.latitude;
+        double north = cameraBounds.northeast.latitude;
+        double west = cameraBounds.southwest.longitude;
+        double east = cameraBounds.northeast.longitude;
+        double lngSpan = west <= east ? east - west : east + 360 - west;
+        double latMargin = (north - south) * VIEWPORT_MARGIN;
+        double lngMargin = lngSpan * VIEWPORT_MARGIN;
+        south -= latMargin;
+        north += latMargin;
+        boolean isWholeWorld = lngSpan + 2 * lngMargin >= 360;
+
+        LongIntHashMap visible = new LongIntHashMap(Math.max(16, renderedKeys.size()));
+        for (int i = 0; i < level.size(); i++) {
+            double latitude = level.latitudes[i];
+            if (latitude < south || latitude > north) continue;
+            if (!isWholeWorld && !isWithinLongitudes(level.longitudes[i], west - lngMargin, lngSpan + 2 * lngMargin)) continue;
+            visible.put(level.cellKeys[i], i);
+        }
+
+        // drop clusters that left the viewport
+        for (int i = renderedKeys.size() - 1; i >= 0; i--) {
+            long key = renderedKeys.get(i);
+            if (visible.containsKey(key)) continue;
+            renderedMarkers.get(i).removeDataPoint();
+            renderedIndex.remove(key);
+            int last = renderedKeys.size() - 1;
+            if (i != last) {
+                renderedKeys.set(i, renderedKeys.get(last));
+                renderedMarkers.set(i, renderedMarkers.get(last));
+                renderedIndex.put(renderedKeys.get(i), i);
+            }
+            renderedKeys.remove(last);
+            renderedMarkers.remove(last);
+        }
+
+        // add clusters that entered the viewport
+        for (int i = 0; i < level.size(); i++) {
+            long key = level.cellKeys[i];
+            if (!visible.containsKey(key) || renderedIndex.containsKey(key)) continue;
+            renderedIndex.put(key, renderedKeys.size());
+            renderedKeys.add(key);
+            renderedMarkers.add(createMarker(level, i));
+        }
+    }
+
+    private MarkerAreaWrapper createMarker(ClusterLevel level, int cluster) {
+        int count = level.count(cluster);
+        ArrayList<Object> locationData = new ArrayList<>(count);
+        if (pointSet.locationData != null) {
+            for (int m = level.memberStart[cluster]; m < level.memberStart[cluster + 1]; m++) {
+                locationData.add(pointSet.locationData[level.members[m]]);
+            }
+        }
+
+        LatLng center = new LatLng(level.latitudes[cluster], level.longitudes[cluster]);
+        int drawableId = count == 1 ? centerDrawableId : -1;
+        MarkerAreaWrapper wrapper = new MarkerAreaWrapper(context, googleMap, false, center, count, count > 1, locationData, drawableId);
+        if (count > 1) wrapper.getCenterMarker().setIcon(getClusterIcon(count));
+        return wrapper;
+    }
+
+    private void clearRendered() {
+        for (int i = 0; i < renderedMarkers.size(); i++) {
+            renderedMarkers.get(i).removeDataPoint();
+        }
+        renderedMarkers.clear();
+        renderedKeys.clear();
+        renderedIndex.clear();
+        renderedZoom = -1;
+    }
+
+    private BitmapDescriptor getClusterIcon(int count) {
+        String label = getClusterLabel(count);
+        int sizePx = MetricsUtils.convertDIPsToPixels(context, ICON_SIZE_DP);
+        String key = MarkerIconCache.key(context, "cluster" + label, 0, sizePx);
+        BitmapDescriptor descriptor = MarkerIconCache.get(key);
+        if (descriptor != null) return descriptor;
+
+        Bitmap bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(0xcc1e88e5);
+        canvas.drawCircle(sizePx / 2f, sizePx / 2f, sizePx / 2f, paint);
+        paint.setColor(Color.WHITE);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setTextSize(sizePx / 3f);
+        canvas.drawText(label, sizePx / 2f, sizePx / 2f - (paint.descent() + paint.ascent()) / 2, paint);
+
+        return MarkerIconCache.put(key, bitmap);
+    }
+
+    /**
+     * Counts are bucketed so that only a handful of cluster icons ever get rasterized
+     */
+    private static String getClusterLabel(int count) {
+        if (count < 10) return String.valueOf(count);
+        int[] buckets = {10000, 5000, 1000, 500, 200, 100, 50, 20, 10};
+        for (int bucket : buckets) {
+            if (count >= bucket) return bucket + "+";
+        }
+        return String.valueOf(count);
+    }
+
+    private static boolean isWithinLongitudes(double longitude, double west, double span) {
+        double offset = longitude - west;
+        offset -= 360 * Math.floor(offset / 360);
+        return offset <= span;
+    }
+
+    private static PointSet project(LatLng[] positions, Object[] locationData) {
+        int n = positions.length;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = WebMercator.x(positions[i].longitude);
+            y[i] = WebMercator.y(positions[i].latitude);
+        }
+        return new PointSet(x, y, locationData);
+    }
+
+    /**
+     * Buckets the points into grid cells of the zoom level, cluster centers are member centroids
+     */
+    private static ClusterLevel cluster(PointSet points, int zoom, int cellSizeDp) {
+        int n = points.x.length;
+        double cellsPerWorld = 256.0 * (1L << zoom) / cellSizeDp;
+
+        LongIntHashMap clusterOfCell = new LongIntHashMap(Math.min(n, 1 << 16));
+        int[] clusterOfPoint = new int[n];
+        long[] cellKeys = new long[16];
+        double[] sumX = new double[16];
+        double[] sumY = new double[16];
+        int[] counts = new int[16];
+        int clusterCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            long cellX = (long) Math.floor(points.x[i] * cellsPerWorld);
+            long cellY = (long) Math.floor(points.y[i] * cellsPerWorld);
+            long key = (cellX << 32) | (cellY & 0xffffffffL);
+
+            int cluster = clusterOfCell.get(key, -1);
+            if (cluster < 0) {
+                cluster = clusterCount++;
+                if (cluster == cellKeys.length) {
+                    int capacity = cellKeys.length * 2;
+                    cellKeys = Arrays.copyOf(cellKeys, capacity);
+                    sumX = Arrays.copyOf(sumX, capacity);
+                    sumY = Arrays.copyOf(sumY, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                }
+                cellKeys[cluster] = key;
+                clusterOfCell.put(key, cluster);
+            }
+            clusterOfPoint[i] = cluster;
+            sumX[cluster] += points.x[i];
+            sumY[cluster] += points.y[i];
+            counts[cluster]++;
+        }
+
+        int[] memberStart = new int[clusterCount + 1];
+        for (int c = 0; c < clusterCount; c++) {
+            memberStart[c + 1] = memberStart[c] + counts[c];
+        }
+        int[] cursor = Arrays.copyOf(memberStart, clusterCount);
+        int[] members = new int[n];
+        for (int i = 0; i < n; i++) {
+            members[cursor[clusterOfPoint[i]]++] = i;
+        }
+
+        double[] latitudes = new double[clusterCount];
+        double[] longitudes = new double[clusterCount];
+        for (int c = 0; c < clusterCount; c++) {
+            double x = sumX[c] / counts[c];
+            double y = sumY[c] / counts[c];
+            longitudes[c] = WebMercator.longitude(x);
+            latitudes[c] = WebMercator.latitude(y);
+        }
+
+        return new ClusterLevel(Arrays.copyOf(cellKeys, clusterCount), latitudes, longitudes, memberStart, members);
+    }
+}
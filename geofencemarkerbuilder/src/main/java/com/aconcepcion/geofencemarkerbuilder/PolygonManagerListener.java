@@ -0,0 +1,27 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+/**
+ * Polygon counterpart of {@link CircleManagerListener}
+ */
+public interface PolygonManagerListener {
+
+    /**
+     * Called when a polygon was placed on the map with {@link MarkerBuilderManagerV2#addPolygon(java.util.List, long, int)}
+     */
+    void onCreatePolygon(GeofencePolygon polygon);
+
+    /**
+     * Called when a vertex marker was clicked
+     */
+    void onPolygonMarkerClick(GeofencePolygon polygon, int vertexIndex);
+
+    /**
+     * Called when a vertex drag starts (user long presses a vertex marker)
+     */
+    void onMoveVertexStart(GeofencePolygon polygon, int vertexIndex);
+
+    /**
+     * Called when a vertex drag finishes (user lifts the finger)
+     */
+    void onMoveVertexEnd(GeofencePolygon polygon, int vertexIndex);
+}
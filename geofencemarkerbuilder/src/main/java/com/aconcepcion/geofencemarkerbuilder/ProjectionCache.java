@@ -0,0 +1,172 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import android.content.Context;
+import android.graphics.Point;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.Projection;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.VisibleRegion;
+
+/**
+ * Screen and geographic conversions computed from the camera position instead of a {@link Projection}
+ *
+ * Every {@link GoogleMap#getProjection()} is a snapshot fetched from the Maps service. For an untilted
+ * camera the projection is Web Mercator scaled by {@code 256 * 2^zoom} dp and rotated by the bearing
+ * around the screen position of the camera target, so conversions are plain math once the camera
+ * position is known. {@link #refresh()} takes one projection snapshot to locate the camera target on
+ * screen (it moves with the map padding), {@link #onCameraMove()} only reads the camera position.
+ *
+ * While the camera is tilted the model does not apply: conversions use a projection snapshot, fetched
+ * at most once per camera change.
+ *
+ * Must be used from the main thread.
+ */
+public class ProjectionCache {
+
+    private final GoogleMap map;
+    private final float density;
+
+    private boolean isRefreshed;
+    private Projection projection;
+    private LatLngBounds visibleBounds;
+
+    private float zoom;
+    private float tilt;
+    private double targetX;
+    private double targetY;
+    private double pixelsPerUnit;
+    private double cosBearing;
+    private double sinBearing;
+    private double centerX;
+    private double centerY;
+
+    public ProjectionCache(Context context, GoogleMap map) {
+        this.map = map;
+        this.density = context.getResources().getDisplayMetrics().density;
+    }
+
+    /**
+     * Reads the camera position and a projection snapshot, call when the camera becomes idle
+     */
+    public void refresh() {
+        setCamera(map.getCameraPosition());
+        projection = map.getProjection();
+        VisibleRegion visibleRegion = projection.getVisibleRegion();
+        visibleBounds = visibleRegion.latLngBounds;
+
+        // the far left corner of the visible region is the screen origin
+        centerX = 0;
+        centerY = 0;
+        centerX = -screenX(visibleRegion.farLeft);
+        centerY = -screenY(visibleRegion.farLeft);
+        isRefreshed = true;
+    }
+
+    /**
+     * Reads the camera position only, call on every camera move
+     */
+    public void onCameraMove() {
+        if (!isRefreshed) {
+            refresh();
+            return;
+        }
+        setCamera(map.getCameraPosition());
+        projection = null;
+        visibleBounds = null;
+    }
+
+    /**
+     * @return false while the camera is tilted, conversions then go through a projection snapshot
+     */
+    public boolean isComputed() {
+        return tilt == 0;
+    }
+
+    public float getZoom() {
+        ensureRefreshed();
+        return zoom;
+    }
+
+    public Point toScreenLocation(LatLng point) {
+        ensureRefreshed();
+        if (!isComputed()) return projection().toScreenLocation(point);
+        return new Point((int) Math.round(screenX(point)), (int) Math.round(screenY(point)));
+    }
+
+    public LatLng fromScreenLocation(Point point) {
+        ensureRefreshed();
+        if (!isComputed()) return projection().fromScreenLocation(point);
+
+        double screenDeltaX = point.x - centerX;
+        double screenDeltaY = point.y - centerY;
+        double x = targetX + (screenDeltaX * cosBearing - screenDeltaY * sinBearing) / pixelsPerUnit;
+        double y = targetY + (screenDeltaX * sinBearing + screenDeltaY * cosBearing) / pixelsPerUnit;
+        x -= Math.floor(x);
+        return new LatLng(WebMercator.latitude(y), WebMercator.longitude(x));
+    }
+
+    /**
+     * @return ground distance in meters covered by one screen pixel at the latitude
+     */
+    public double metersPerPixel(double latitude) {
+        ensureRefreshed();
+        return WebMercator.metersPerDp(latitude, zoom) / density;
+    }
+
+    /**
+     * @return bounds of the visible region, fetched from the Maps service when the camera moved since the last refresh
+     */
+    public LatLngBounds getVisibleBounds() {
+        ensureRefreshed();
+        if (visibleBounds == null) visibleBounds = projection().getVisibleRegion().latLngBounds;
+        return visibleBounds;
+    }
+
+    private void setCamera(CameraPosition cameraPosition) {
+        zoom = cameraPosition.zoom;
+        tilt = cameraPosition.tilt;
+        targetX = WebMercator.x(cameraPosition.target.longitude);
+        targetY = WebMercator.y(cameraPosition.target.latitude);
+        pixelsPerUnit = WebMercator.TILE_SIZE_DP * Math.pow(2, zoom) * density;
+        double bearing = Math.toRadians(cameraPosition.bearing);
+        cosBearing = Math.cos(bearing);
+        sinBearing = Math.sin(bearing);
+    }
+
+    private void ensureRefreshed() {
+        if (!isRefreshed) refresh();
+    }
+
+    private Projection projection() {
+        if (projection == null) projection = map.getProjection();
+        return projection;
+    }
+
+    /**
+     * Screen x grows along the bearing rotated 90 degrees clockwise, screen y against the bearing
+     */
+    private double screenX(LatLng point) {
+        return centerX + (deltaX(point) * cosBearing + deltaY(point) * sinBearing) * pixelsPerUnit;
+    }
+
+    private double screenY(LatLng point) {
+        return centerY + (deltaY(point) * cosBearing - deltaX(point) * sinBearing) * pixelsPerUnit;
+    }
+
+    /**
+     * @return normalized x distance from the camera target, taking the shorter way around the world
+     */
+    private double deltaX(LatLng point) {
+        double delta = WebMercator.x(point.longitude) - targetX;
+        if (delta > 0.5) return delta - 1;
+        if (delta < -0.5) return delta + 1;
+        return delta;
+    }
+
+    private double deltaY(LatLng point) {
+        return WebMercator.y(point.latitude) - targetY;
+    }
+}
@@ -0,0 +1,275 @@
+package com.aconcepcion.geofencemarkerbuilder;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Keeps saved geofences as lightweight models and only creates map objects for the visible ones
+ *
+ * On every viewport change the models intersecting the visible bounds (grown by a margin to
+ * avoid flicker while panning) are queried from a spatial index. Only the difference to the
+ * previously visible set is applied: newly visible models are materialized as circles and
+ * circles that left the viewport are removed from the map.
+ *
+ * Must be used from the main thread.
+ */
+class ViewportVirtualizer {
+
+    /**
+     * Lightweight model of a saved geofence, materialized as a circle while visible
+     */
+    static class VirtualGeofence {
+        final long circleId;
+        double latitude;
+        double longitude;
+        double radius;
+        int fillColor;
+        final int minRadius;
+        final int maxRadius;
+        final int strokeColor;
+        final float strokeWidth;
+        GeofenceCircle circle;
+        int visibleStamp;
+
+        VirtualGeofence(long circleId, double latitude, double longitude, double radius, int fillColor,
+                        int minRadius, int maxRadius, int strokeColor, float strokeWidth) {
+            this.circleId = circleId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radius = radius;
+            this.fillColor = fillColor;
+            this.minRadius = minRadius;
+            this.maxRadius = maxRadius;
+            this.strokeColor = strokeColor;
+            this.strokeWidth = strokeWidth;
+        }
+    }
+
+    private final MarkerBuilderManagerV2 manager;
+    private final double viewportMargin;
+
+    private final HashMap<Long, VirtualGeofence> geofences = new HashMap<>();
+    private final GeofenceGridIndex<VirtualGeofence> index = new GeofenceGridIndex<>();
+    private final IdentityHashMap<GeofenceCircle, VirtualGeofence> materialized = new IdentityHashMap<>();
+
+    private ArrayList<VirtualGeofence> visible = new ArrayList<>();
+    private ArrayList<VirtualGeofence> nextVisible = new ArrayList<>();
+    private int visibleStamp;
+    private LatLngBounds lastBounds;
+
+    /**
+     * @param viewportMargin fraction of the visible span added on each side of the viewport
+     */
+    ViewportVirtualizer(MarkerBuilderManagerV2 manager, double viewportMargin) {
+        this.manager = manager;
+        this.viewportMargin = viewportMargin;
+    }
+
+    /**
+     * Adds or replaces the models, with the radius limits and stroke of the manager,
+     * call {@link #refresh()} afterwards to update the map
+     */
+    void addAll(Collection<GeofenceSpec> specs) {
+        GeofenceStyle style = manager.getStyle();
+        for (GeofenceSpec spec : specs) {
+            add(new VirtualGeofence(spec.getCircleId(), spec.getCenter().latitude, spec.getCenter().longitude,
+                    spec.getRadius(), spec.getFillColor(), manager.getMinRadius(), manager.getMaxRadius(),
+                    style.getStrokeColor(), style.getStrokeWidth()));
+        }
+    }
+
+    /**
+     * Adds or replaces the models with the records of a snapshot. Records are copied into the models,
+     * the snapshot can be closed afterwards. Call {@link #refresh()} afterwards to update the map
+     */
+    void addAll(GeofenceSnapshot snapshot) {
+        for (int i = 0; i < snapshot.size(); i++) {
+            add(new VirtualGeofence(snapshot.getId(i), snapshot.getLatitude(i), snapshot.getLongitude(i),
+                    snapshot.getRadius(i), snapshot.getFillColor(i), snapshot.getMinRadius(i), snapshot.getMaxRadius(i),
+                    snapshot.getStrokeColor(i), snapshot.getStrokeWidth(i)));
+        }
+    }
+
+    private void add(VirtualGeofence geofence) {
+        remove(geofence.circleId);
+        geofences.put(geofence.circleId, geofence);
+        index.put(geofence, geofence.latitude, geofence.longitude, geofence.radius);
+    }
+
+    /**
+     * Writes the models without map objects, materialized ones are written from their circles
+     */
+    void writeDetached(GeofenceSnapshot.Writer writer) throws IOException {
+        for (VirtualGeofence geofence : geofences.values()) {
+            if (geofence.circle != null) continue;
+            writer.add(geofence.circleId, geofence.latitude, geofence.longitude, geofence.radius,
+                    geofence.minRadius, geofence.maxRadius, geofence.fillColor, geofence.strokeColor, geofence.strokeWidth);
+        }
+    }
+
+    /**
+     * Updates an existing model, and its circle in place when materialized,
+     * call {@link #refresh()} afterwards to update the map
+     *
+     * @return false when there is no model with the id of the spec
+     */
+    boolean update(GeofenceSpec spec) {
+        VirtualGeofence geofence = geofences.get(spec.getCircleId());
+        if (geofence == null) return false;
+
+        geofence.latitude = spec.getCenter().latitude;
+        geofence.longitude = spec.getCenter().longitude;
+        geofence.radius = spec.getRadius();
+        geofence.fillColor = spec.getFillColor();
+        index.put(geofence, geofence.latitude, geofence.longitude, geofence.radius);
+
+        if (geofence.circle != null) {
+            manager.updateSavedCircle(geofence.circle, spec.getCenter(), spec.getRadius(), spec.getFillColor());
+        }
+        return true;
+    }
+
+    boolean remove(long circleId) {
+        VirtualGeofence geofence = geofences.remove(circleId);
+        if (geofence == null) return false;
+        index.remove(geofence);
+        if (geofence.circle != null) {
+            release(geofence);
+            visible.remove(geofence);
+        }
+        return true;
+    }
+
+    void clear() {
+        for (int i = 0; i < visible.size(); i++) {
+            VirtualGeofence geofence = visible.get(i);
+            if (geofence.circle != null) release(geofence);
+        }
+        visible.clear();
+        geofences.clear();
+        index.clear();
+    }
+
+    int size() {
+        return geofences.size();
+    }
+
+    /**
+     * Called when the manager removed every saved circle from the map, the models stay
+     */
+    void onCirclesDetached() {
+        for (int i = 0; i < visible.size(); i++) {
+            visible.get(i).circle = null;
+        }
+        visible.clear();
+        materialized.clear();
+    }
+
+    /**
+     * Writes the geometry of a materialized circle back to its model, e.g. after a drag gesture
+     */
+    void onCircleChanged(GeofenceCircle circle) {
+        VirtualGeofence geofence = materialized.get(circle);
+        if (geofence == null) return;
+        LatLng center = circle.getCenter();
+        geofence.latitude = center.latitude;
+        geofence.longitude = center.longitude;
+        geofence.radius = circle.getRadius();
+        index.put(geofence, geofence.latitude, geofence.longitude, geofence.radius);
+    }
+
+    /**
+     * Re-applies the last known viewport, e.g. after models were added
+     */
+    void refresh() {
+        if (lastBounds != null) onViewportChanged(lastBounds);
+    }
+
+    void onViewportChanged(LatLngBounds bounds) {
+        lastBounds = bounds;
+
+        double south = bounds.southwest.latitude;
+        double north = bounds.northeast.latitude;
+        double west = bounds.southwest.longitude;
+        double east = bounds.northeast.longitude;
+        double lngSpan = west <= east ? east - west : east + 360 - west;
+        double latMargin = (north - south) * viewportMargin;
+        double lngMargin = lngSpan * viewportMargin;
+
+        south = Math.max(-90, south - latMargin);
+        north = Math.min(90, north + latMargin);
+        if (lngSpan + 2 * lngMargin >= 360) {
+            west = -180;
+            east = 180;
+        } else {
+            west = wrapLongitude(west - lngMargin);
+            east = wrapLongitude(east + lngMargin);
+        }
+
+        int stamp = ++visibleStamp;
+        nextVisible.clear();
+        index.intersecting(south, west, north, east, nextVisible);
+
+        for (int i = 0; i < nextVisible.size(); i++) {
+            VirtualGeofence geofence = nextVisible.get(i);
+            geofence.visibleStamp = stamp;
+            if (geofence.circle == null) materialize(geofence);
+        }
+
+        for (int i = 0; i < visible.size(); i++) {
+            VirtualGeofence geofence = visible.get(i);
+            if (geofence.visibleStamp != stamp && geofence.circle != null) release(geofence);
+        }
+
+        ArrayList<VirtualGeofence> swap = visible;
+        visible = nextVisible;
+        nextVisible = swap;
+    }
+
+    /**
+     * @return circles currently materialized on the map
+     */
+    List<GeofenceCircle> getMaterializedCircles() {
+        return new ArrayList<>(materialized.keySet());
+    }
+
+    /**
+     * @return true when the circle was created for a virtual point
+     */
+    boolean isMaterialized(GeofenceCircle circle) {
+        return materialized.containsKey(circle);
+    }
+
+    /**
+     * Creates the circle of the model, unless a saved circle with the same id is already on the map:
+     * that circle belongs to the caller and the model then stays without map objects
+     */
+    private void materialize(VirtualGeofence geofence) {
+        geofence.circle = manager.addVirtualCircle(new LatLng(geofence.latitude, geofence.longitude), geofence.radius,
+                geofence.circleId, manager.styleFor(geofence.fillColor, geofence.strokeColor, geofence.strokeWidth),
+                geofence.minRadius, geofence.maxRadius);
+        if (geofence.circle != null) materialized.put(geofence.circle, geofence);
+    }
+
+    /**
+     * Removes the circle of the model, only ever called for circles created by {@link #materialize(VirtualGeofence)}
+     */
+    private void release(VirtualGeofence geofence) {
+        materialized.remove(geofence.circle);
+        manager.detachSavedCircle(geofence.circle);
+        geofence.circle = null;
+    }
+
+    private static double wrapLongitude(double longitude) {
+        if (longitude < -180) return longitude + 360;
+        if (longitude > 180) return longitude - 360;
+        return longitude;
+    }
+}